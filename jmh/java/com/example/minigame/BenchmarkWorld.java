@@ -0,0 +1,61 @@
+package com.example.minigame;
+
+/**
+ * A randomly populated playfield shared by the benchmarks.
+ *
+ * The field grows with the entity count so the density stays that of a full 8-object wave on a
+ * 1080x1920 screen; otherwise thousands of 150px objects would all overlap and the collision
+ * numbers would measure a pile-up no game ever reaches.
+ */
+final class BenchmarkWorld {
+
+    private static final int BASE_WIDTH = 1080;
+    private static final int BASE_HEIGHT = 1920;
+    private static final int BASE_COUNT = 8;
+
+    final EntityStore store;
+    final int width;
+    final int height;
+
+    // Initial state, restored before each operation that moves entities.
+    private final float[] x;
+    private final float[] y;
+    private final float[] dx;
+    private final float[] dy;
+
+    BenchmarkWorld(int count, boolean broadPhase, long seed) {
+        double scale = Math.sqrt(Math.max(1.0, (double) count / BASE_COUNT));
+        width = (int) (BASE_WIDTH * scale);
+        height = (int) (BASE_HEIGHT * scale);
+
+        store = new EntityStore(count);
+        if (broadPhase) {
+            // The same broad phase the game runs.
+            store.setIndex(new SpatialHash(Simulation.GRID_CELL_SIZE, count));
+        }
+        SimRandom rnd = new SimRandom(seed);
+        for (int i = 0; i < count; i++) {
+            float left = rnd.nextFloat() * (width - Simulation.OBJECT_SIZE);
+            float top = rnd.nextFloat() * (height - Simulation.OBJECT_SIZE);
+            int flags = rnd.nextDouble() < 0.15 ? EntityStore.FLAG_PENALTY
+                    : (rnd.nextDouble() < 0.1 ? EntityStore.FLAG_FLOWER : 0);
+            rndSqr.spawn(store, rnd, left, top, Simulation.OBJECT_SIZE, 0, 400, flags, 1);
+        }
+
+        x = store.x.clone();
+        y = store.y.clone();
+        dx = store.dx.clone();
+        dy = store.dy.clone();
+    }
+
+    /**
+     * Puts every entity back where the constructor placed it.
+     */
+    void reset() {
+        int n = store.count;
+        System.arraycopy(x, 0, store.x, 0, n);
+        System.arraycopy(y, 0, store.y, 0, n);
+        System.arraycopy(dx, 0, store.dx, 0, n);
+        System.arraycopy(dy, 0, store.dy, 0, n);
+    }
+}
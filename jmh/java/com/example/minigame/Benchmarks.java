@@ -0,0 +1,35 @@
+package com.example.minigame;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs every benchmark in this package in throughput mode with the GC profiler attached, so
+ * each result reports ops/s next to the allocation rate (gc.alloc.rate.norm should stay at 0
+ * for the hot paths). An optional argument narrows the run to benchmarks matching a regex.
+ */
+public class Benchmarks {
+
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : Benchmarks.class.getPackage().getName() + ".*Benchmark";
+        Options options = new OptionsBuilder()
+                .include(include)
+                .mode(Mode.Throughput)
+                .timeUnit(TimeUnit.SECONDS)
+                .warmupIterations(3)
+                .warmupTime(TimeValue.seconds(1))
+                .measurementIterations(5)
+                .measurementTime(TimeValue.seconds(1))
+                .forks(1)
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
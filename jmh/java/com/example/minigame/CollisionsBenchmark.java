@@ -0,0 +1,45 @@
+package com.example.minigame;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * One full Collisions.checkCollisions pass (boundaries, broad phase and narrow phase) and one
+ * swept Collisions.sweep substep, with and without the spatial grid. Each operation first
+ * restores the initial positions so every iteration measures the same configuration; the
+ * restore is a few array copies.
+ */
+@State(Scope.Thread)
+public class CollisionsBenchmark {
+
+    @Param({"8", "64", "512", "4096"})
+    public int entities;
+
+    @Param({"true", "false"})
+    public boolean broadPhase;
+
+    private BenchmarkWorld world;
+
+    @Setup
+    public void setUp() {
+        world = new BenchmarkWorld(entities, broadPhase, 42);
+    }
+
+    @Benchmark
+    public EntityStore checkCollisions() {
+        world.reset();
+        Collisions.checkCollisions(world.store, world.width, world.height);
+        return world.store;
+    }
+
+    @Benchmark
+    public EntityStore sweep() {
+        world.reset();
+        Collisions.sweep(world.store, 1f / Simulation.DEFAULT_TICKS_PER_SECOND, world.width,
+                world.height);
+        return world.store;
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.minigame;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Hit-testing one touch point against every entity with rndSqr.contains, as a tap does.
+ */
+@State(Scope.Thread)
+public class ContainsBenchmark {
+
+    @Param({"8", "64", "512", "4096"})
+    public int entities;
+
+    private BenchmarkWorld world;
+    private final float[] touchX = new float[64];
+    private final float[] touchY = new float[64];
+    private int next = 0;
+
+    @Setup
+    public void setUp() {
+        world = new BenchmarkWorld(entities, false, 42);
+        SimRandom rnd = new SimRandom(7);
+        for (int i = 0; i < touchX.length; i++) {
+            touchX[i] = rnd.nextFloat() * world.width;
+            touchY[i] = rnd.nextFloat() * world.height;
+        }
+    }
+
+    @Benchmark
+    public int contains() {
+        int t = next++ & (touchX.length - 1);
+        float px = touchX[t];
+        float py = touchY[t];
+        EntityStore store = world.store;
+        int hits = 0;
+        for (int i = 0, n = store.count; i < n; i++) {
+            if (rndSqr.contains(store, i, px, py)) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.minigame;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * One whole physics step as Simulation.tick() runs it (substep count, integration and swept
+ * collisions per substep) through ParallelPhysics, on the calling thread and on the common
+ * pool. Both give the same result; only the time differs. Each operation first restores the
+ * initial positions.
+ */
+@State(Scope.Thread)
+public class PhysicsBenchmark {
+
+    private static final float STEP = 1f / Simulation.DEFAULT_TICKS_PER_SECOND;
+
+    @Param({"512", "4096", "16384"})
+    public int entities;
+
+    @Param({"true", "false"})
+    public boolean parallel;
+
+    private BenchmarkWorld world;
+    private ParallelPhysics physics;
+
+    @Setup
+    public void setUp() {
+        world = new BenchmarkWorld(entities, true, 42);
+        physics = parallel ? new ParallelPhysics(ForkJoinPool.commonPool(), 0)
+                : ParallelPhysics.SERIAL;
+    }
+
+    @Benchmark
+    public EntityStore step() {
+        world.reset();
+        EntityStore store = world.store;
+        int substeps = physics.substeps(store, STEP, Collisions.MAX_SUBSTEPS);
+        float dt = STEP / substeps;
+        for (int k = 0; k < substeps; k++) {
+            if (k == 0) {
+                physics.update(store, dt);
+            } else {
+                physics.move(store, dt);
+            }
+            physics.sweep(store, dt, world.width, world.height);
+        }
+        return store;
+    }
+}
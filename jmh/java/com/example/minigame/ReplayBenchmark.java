@@ -0,0 +1,62 @@
+package com.example.minigame;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+
+/**
+ * Plays a recorded game from start to finish without rendering, i.e. how fast the simulation
+ * runs a real session of taps and swipes. The session is recorded in setUp() from a synthetic
+ * player who taps a fruit every third of a second and now and then swipes across the screen.
+ */
+@State(Scope.Thread)
+public class ReplayBenchmark {
+
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 1920;
+
+    private ReplayPlayer player;
+    private int expectedScore;
+
+    @Setup
+    public void setUp() throws IOException {
+        Simulation sim = new Simulation(42, WIDTH, HEIGHT, 6, 2, 2);
+        ReplayRecorder recorder = new ReplayRecorder(4096);
+        TouchBatch batch = new TouchBatch(32);
+        SimRandom rnd = new SimRandom(7);
+        recorder.start(sim);
+        while (!sim.isOver()) {
+            long tick = sim.getTickCount();
+            EntityStore s = sim.getSquares();
+            if (tick % 20 == 0 && s.count > 0) {
+                int i = rnd.nextInt(s.count);
+                batch.accept(0, s.x[i], s.y[i], true);
+            } else if (tick % 90 == 45) {
+                float y = rnd.nextFloat() * HEIGHT;
+                for (int k = 0; k < 8; k++) {
+                    batch.accept(1, k * WIDTH / 7f, y, k == 0);
+                }
+            }
+            recorder.onTick(sim, batch);
+            sim.applyTouches(batch);
+            sim.tick();
+        }
+        recorder.finish(sim);
+        player = new ReplayPlayer(recorder.toByteArray());
+        expectedScore = sim.getScore();
+    }
+
+    @Benchmark
+    public int playSession() {
+        player.rewind();
+        Simulation sim = player.createSimulation();
+        player.playToEnd(sim);
+        if (!player.verify(sim)) {
+            throw new IllegalStateException("Replay diverged from the recording");
+        }
+        return sim.getScore() + expectedScore;
+    }
+}
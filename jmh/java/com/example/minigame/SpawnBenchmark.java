@@ -0,0 +1,33 @@
+package com.example.minigame;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Spawning one wave, as Simulation does whenever the last point-giving object is gone.
+ * The store is cleared after each wave, so a warmed-up run should show no allocation.
+ */
+@State(Scope.Thread)
+public class SpawnBenchmark {
+
+    @Param({"3", "8"})
+    public int waveSize;
+
+    private Simulation sim;
+
+    @Setup
+    public void setUp() {
+        sim = new Simulation(42, 1080, 1920, 8, 3, 3);
+    }
+
+    @Benchmark
+    public EntityStore spawnWave() {
+        EntityStore squares = sim.getSquares();
+        squares.clear();
+        sim.spawnWave(waveSize, 400);
+        return squares;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.minigame;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Hit-testing one step's worth of swipe input (a stroke of 8 samples) with TouchBatch, with
+ * and without the spatial index. Entities are only hit-tested, never removed.
+ */
+@State(Scope.Thread)
+public class TouchBatchBenchmark {
+
+    private static final int SAMPLES = 8;
+
+    @Param({"8", "64", "512", "4096"})
+    public int entities;
+
+    @Param({"true", "false"})
+    public boolean broadPhase;
+
+    private BenchmarkWorld world;
+    private final TouchBatch batch = new TouchBatch(SAMPLES);
+    private final float[] touchX = new float[64];
+    private final float[] touchY = new float[64];
+    private int next = 0;
+
+    @Setup
+    public void setUp() {
+        world = new BenchmarkWorld(entities, broadPhase, 42);
+        if (broadPhase) {
+            world.store.getIndex().setBounds(world.width, world.height);
+        }
+        SimRandom rnd = new SimRandom(7);
+        for (int i = 0; i < touchX.length; i++) {
+            touchX[i] = rnd.nextFloat() * world.width;
+            touchY[i] = rnd.nextFloat() * world.height;
+        }
+    }
+
+    @Benchmark
+    public int swipe() {
+        int t = next++ & (touchX.length - 1);
+        float x = touchX[t];
+        float y = touchY[t];
+        // About 60 px between samples, a fast swipe at 60 Hz.
+        batch.accept(0, x, y, true);
+        for (int s = 1; s < SAMPLES; s++) {
+            batch.accept(0, x + s * 40, y + s * 45, false);
+        }
+        int hits = batch.resolve(world.store, Simulation.OBJECT_SIZE / 2f);
+        batch.clear();
+        return hits;
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.minigame;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * One rndSqr.update sweep over the whole entity store.
+ */
+@State(Scope.Thread)
+public class UpdateBenchmark {
+
+    @Param({"8", "64", "512", "4096"})
+    public int entities;
+
+    private BenchmarkWorld world;
+
+    @Setup
+    public void setUp() {
+        world = new BenchmarkWorld(entities, false, 42);
+    }
+
+    @Benchmark
+    public EntityStore update() {
+        // Positions drift without bound, which does not change the cost of the sweep.
+        rndSqr.update(world.store, 1f / Simulation.DEFAULT_TICKS_PER_SECOND);
+        return world.store;
+    }
+}
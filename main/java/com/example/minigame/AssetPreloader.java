@@ -0,0 +1,115 @@
+package com.example.minigame;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Typeface;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Prepares {@link GameAssets} on a background thread while the countdown runs, so the first
+ * frame of the game does not wait for decoding. Work is done in stages, reporting progress
+ * after each: start loading the sound effects, build the sprite atlas, decode the part of the
+ * background that fills the screen, load the HUD font.
+ *
+ * Listener callbacks arrive on the main thread.
+ */
+public class AssetPreloader {
+
+    private static final String TAG = "AssetPreloader";
+    private static final int STAGES = 4;
+
+    public interface Listener {
+        void onProgress(int stagesDone, int stages);
+
+        void onReady(GameAssets assets);
+    }
+
+    private final Context context;
+    private final Handler main = new Handler(Looper.getMainLooper());
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(
+            r -> new Thread(r, "AssetPreloader"));
+    private volatile boolean cancelled = false;
+
+    public AssetPreloader(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    /**
+     * Starts preparing assets for a game surface of the given size. Does nothing after
+     * cancel(), e.g. when the activity was destroyed before a posted start() ran.
+     */
+    public void start(int width, int height, Listener listener) {
+        if (cancelled) {
+            // The executor is shut down and would reject the task.
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                load(width, height, listener);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Preloading failed", e);
+                // The game cannot run without its assets; fail the way an inline decode would.
+                main.post(() -> {
+                    if (!cancelled) {
+                        throw e;
+                    }
+                });
+            }
+        });
+        executor.shutdown();
+    }
+
+    /**
+     * Stops after the current stage and drops the result. Listener methods are not called
+     * after this returns.
+     */
+    public void cancel() {
+        cancelled = true;
+        executor.shutdownNow();
+    }
+
+    private void load(int width, int height, Listener listener) {
+        Resources resources = context.getResources();
+
+        // Samples decode inside SoundPool on its own thread; this only gets them going.
+        SoundManager.getInstance(context);
+        progress(listener, 1);
+
+        SpriteAtlas sprites = new SpriteAtlas(resources, GameAssets.FRUIT_IMAGES,
+                GameAssets.PEST_IMAGES, GameAssets.FLOWER_IMAGES, Simulation.OBJECT_SIZE);
+        progress(listener, 2);
+
+        BackgroundLoader loader = new BackgroundLoader();
+        Bitmap background = loader.load(resources, GameAssets.BACKGROUND_IMAGE, width, height,
+                null);
+        if (background == null) {
+            throw new IllegalStateException("Could not decode the background");
+        }
+        progress(listener, 3);
+
+        Typeface font = Typeface.createFromAsset(context.getAssets(), "fonts/myfont.ttf");
+        GameAssets assets = new GameAssets(sprites, background, font, resources);
+        main.post(() -> {
+            if (cancelled) {
+                assets.recycle();
+                return;
+            }
+            listener.onProgress(STAGES, STAGES);
+            listener.onReady(assets);
+        });
+    }
+
+    private void progress(Listener listener, int stagesDone) {
+        main.post(() -> {
+            if (!cancelled) {
+                listener.onProgress(stagesDone, STAGES);
+            }
+        });
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.minigame;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decodes a background image straight into a bitmap that fills a screen: scaled to cover it
+ * with the aspect ratio kept, and the overflow cropped evenly from both sides. The whole image
+ * is never held. Only the region that ends up on screen is decoded, subsampled as far as
+ * possible while staying at least screen-sized, and then scaled into the final bitmap in one
+ * draw. That is one intermediate bitmap, which can itself be a bitmap the caller no longer
+ * needs.
+ *
+ * Not thread-safe; reports the peak of the last load().
+ */
+final class BackgroundLoader {
+
+    private static final String TAG = "BackgroundLoader";
+
+    private final BitmapFactory.Options options = new BitmapFactory.Options();
+    private final Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private long peakBytes;
+    private long fullDecodeBytes;
+
+    /**
+     * @param reuse A mutable bitmap the caller is done with, to decode into if it is big
+     *              enough, or null. It is recycled either way.
+     * @return An opaque width x height bitmap, or null if the image could not be decoded.
+     */
+    Bitmap load(Resources res, int id, int width, int height, Bitmap reuse) {
+        options.inJustDecodeBounds = true;
+        options.inScaled = false;
+        options.inSampleSize = 1;
+        options.inBitmap = null;
+        BitmapFactory.decodeResource(res, id, options);
+        int sourceWidth = options.outWidth;
+        int sourceHeight = options.outHeight;
+        if (sourceWidth <= 0 || sourceHeight <= 0) {
+            recycle(reuse);
+            return null;
+        }
+
+        // The centered part of the image that covers the screen at the crop-to-fill scale.
+        float scale = Math.max((float) width / sourceWidth, (float) height / sourceHeight);
+        int regionWidth = Math.min(sourceWidth, Math.round(width / scale));
+        int regionHeight = Math.min(sourceHeight, Math.round(height / scale));
+        int left = (sourceWidth - regionWidth) / 2;
+        int top = (sourceHeight - regionHeight) / 2;
+        Rect region = new Rect(left, top, left + regionWidth, top + regionHeight);
+
+        int sampleSize = 1;
+        while (regionWidth / (sampleSize * 2) >= width
+                && regionHeight / (sampleSize * 2) >= height) {
+            sampleSize *= 2;
+        }
+        int decodedWidth = (regionWidth + sampleSize - 1) / sampleSize;
+        int decodedHeight = (regionHeight + sampleSize - 1) / sampleSize;
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        options.inMutable = true;
+        if (reuse != null && reuse.isMutable() && !reuse.isRecycled()
+                && reuse.getAllocationByteCount() >= decodedWidth * decodedHeight * 4) {
+            options.inBitmap = reuse;
+        }
+
+        Bitmap decoded;
+        try (InputStream in = res.openRawResource(id)) {
+            BitmapRegionDecoder decoder = BitmapRegionDecoder.newInstance(in, false);
+            try {
+                decoded = decoder.decodeRegion(region, options);
+            } finally {
+                decoder.recycle();
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            // IllegalArgumentException: inBitmap was rejected after all.
+            Log.w(TAG, "Region decode failed, decoding the whole image", e);
+            options.inBitmap = null;
+            decoded = decodeWhole(res, id, region);
+        } finally {
+            options.inBitmap = null;
+        }
+        if (decoded == null) {
+            recycle(reuse);
+            return null;
+        }
+        if (decoded != reuse) {
+            recycle(reuse);
+        }
+
+        long decodedBytes = decoded.getAllocationByteCount();
+        Bitmap result;
+        if (decoded.getWidth() == width && decoded.getHeight() == height) {
+            result = decoded;
+            peakBytes = decodedBytes;
+        } else {
+            result = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            new Canvas(result).drawBitmap(decoded, null, new Rect(0, 0, width, height), paint);
+            peakBytes = decodedBytes + result.getAllocationByteCount();
+            decoded.recycle();
+        }
+        result.setHasAlpha(false);
+        result.prepareToDraw();
+
+        fullDecodeBytes = (long) sourceWidth * sourceHeight * 4;
+        Log.d(TAG, "Background " + width + "x" + height + " from " + regionWidth + "x"
+                + regionHeight + " of " + sourceWidth + "x" + sourceHeight + ", sample "
+                + sampleSize + ", peak " + peakBytes / 1024 + " KB (whole image: "
+                + fullDecodeBytes / 1024 + " KB)");
+        return result;
+    }
+
+    /**
+     * @return Bytes held by bitmaps at the peak of the last load(): the decoded region and
+     * the final bitmap.
+     */
+    long getPeakBytes() {
+        return peakBytes;
+    }
+
+    /**
+     * @return Bytes a plain full-size decode of the last image would have taken on its own.
+     */
+    long getFullDecodeBytes() {
+        return fullDecodeBytes;
+    }
+
+    // Fallback for formats the region decoder does not support: subsampled, then cropped.
+    private Bitmap decodeWhole(Resources res, int id, Rect region) {
+        Bitmap whole = BitmapFactory.decodeResource(res, id, options);
+        if (whole == null) {
+            return null;
+        }
+        int sampleSize = options.inSampleSize;
+        int x = Math.min(region.left / sampleSize, whole.getWidth() - 1);
+        int y = Math.min(region.top / sampleSize, whole.getHeight() - 1);
+        Bitmap cropped = Bitmap.createBitmap(whole, x, y,
+                Math.max(1, Math.min(whole.getWidth() - x, region.width() / sampleSize)),
+                Math.max(1, Math.min(whole.getHeight() - y, region.height() / sampleSize)));
+        if (cropped != whole) {
+            whole.recycle();
+        }
+        return cropped;
+    }
+
+    private static void recycle(Bitmap bitmap) {
+        if (bitmap != null) {
+            bitmap.recycle();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.minigame;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.view.SurfaceHolder;
+
+/**
+ * Software renderer: draws with Canvas through SurfaceHolder.lockCanvas(). Works on every
+ * device, so it is the fallback when {@link GlRenderer} cannot start.
+ *
+ * Only the part of the surface that changed since the last frame is locked and redrawn; the
+ * surface keeps the rest. The changed area is one rectangle covering the objects' old and new
+ * positions and any HUD text that changed.
+ */
+public class CanvasRenderer implements Renderer {
+
+    // Half the diagonal of a sprite's square, relative to its radius; covers any rotation.
+    private static final float SPRITE_EXTENT = 1.415f;
+    // Above this fraction of the screen a full redraw is cheaper than clipping.
+    private static final float FULL_REDRAW_FRACTION = 0.6f;
+
+    private final GameAssets assets;
+    private final SpriteAtlas sprites;
+    private final HudLayer hud;
+    private final SpriteFrame frame = new SpriteFrame();
+    // Destination rectangle reused by every sprite draw.
+    private final RectF drawRect = new RectF();
+
+    private SurfaceHolder holder;
+    private Bitmap background;
+    private volatile int width;
+    private volatile int height;
+    private volatile boolean showStats;
+    private boolean statsShown;
+    private boolean rotateSprites = true;
+
+    private volatile boolean fullRedraw = true;
+    private final Rect dirty = new Rect();
+    private final Rect spriteBounds = new Rect();
+    private final Rect lastSpriteBounds = new Rect();
+
+    public CanvasRenderer(GameAssets assets) {
+        this.assets = assets;
+        sprites = assets.getSprites();
+        hud = new HudLayer(assets.getFont());
+    }
+
+    @Override
+    public boolean attach(SurfaceHolder holder) {
+        this.holder = holder;
+        fullRedraw = true;
+        return true;
+    }
+
+    @Override
+    public void setSize(int width, int height) {
+        this.width = width;
+        this.height = height;
+        fullRedraw = true;
+    }
+
+    @Override
+    public void setShowStats(boolean show) {
+        showStats = show;
+    }
+
+    @Override
+    public void setQuality(QualityScheduler.Level level) {
+        rotateSprites = level.rotateSprites;
+        hud.setRefreshFrames(level.hudRefreshFrames);
+    }
+
+    @Override
+    public void invalidate() {
+        fullRedraw = true;
+    }
+
+    @Override
+    public void render(Simulation sim, float alpha, FrameStats stats) {
+        long drawStart = System.nanoTime();
+        int surfaceWidth = width;
+        int surfaceHeight = height;
+        if (background == null || background.getWidth() != surfaceWidth
+                || background.getHeight() != surfaceHeight) {
+            // Already cropped to this size by the preloader unless the surface changed since.
+            background = assets.getBackground(surfaceWidth, surfaceHeight);
+            fullRedraw = true;
+        }
+
+        EntityStore squares = sim.getSquares();
+        int n = frame.interpolate(squares, alpha);
+        stats.setEntityCount(n);
+        spriteBounds.setEmpty();
+        for (int i = 0; i < n; i++) {
+            int extent = (int) Math.ceil(squares.radius[i] * SPRITE_EXTENT) + 1;
+            int x = (int) frame.x[i];
+            int y = (int) frame.y[i];
+            spriteBounds.union(x - extent, y - extent, x + extent, y + extent);
+        }
+
+        boolean show = showStats;
+        // Switching the overlay off leaves its area to be cleared.
+        boolean full = fullRedraw || show != statsShown;
+        dirty.setEmpty();
+        hud.update(sim, stats, show, surfaceWidth, full, dirty);
+
+        if (!full) {
+            dirty.union(lastSpriteBounds);
+            dirty.union(spriteBounds);
+            if (!dirty.intersect(0, 0, surfaceWidth, surfaceHeight)) {
+                // Nothing on screen changed; the surface already shows this frame.
+                lastSpriteBounds.set(spriteBounds);
+                return;
+            }
+            full = (float) dirty.width() * dirty.height()
+                    > FULL_REDRAW_FRACTION * surfaceWidth * surfaceHeight;
+        }
+
+        // lockCanvas(dirty) may grow the rectangle, e.g. to the whole surface.
+        Canvas c = full ? holder.lockCanvas() : holder.lockCanvas(dirty);
+        if (c == null) {
+            return;
+        }
+        if (full) {
+            c.drawBitmap(background, 0, 0, null);
+        } else {
+            c.save();
+            c.clipRect(dirty);
+            c.drawBitmap(background, dirty, dirty, null);
+        }
+        for (int i = 0; i < n; i++) {
+            int extent = (int) Math.ceil(squares.radius[i] * SPRITE_EXTENT) + 1;
+            int x = (int) frame.x[i];
+            int y = (int) frame.y[i];
+            if (full || dirty.intersects(x - extent, y - extent, x + extent, y + extent)) {
+                drawSquare(c, squares, i);
+            }
+        }
+        hud.draw(c, show, surfaceWidth);
+        if (!full) {
+            c.restore();
+        }
+
+        long postStart = System.nanoTime();
+        holder.unlockCanvasAndPost(c);
+        stats.add(FrameStats.DRAW, postStart - drawStart);
+        stats.add(FrameStats.POST, System.nanoTime() - postStart);
+        lastSpriteBounds.set(spriteBounds);
+        statsShown = show;
+        fullRedraw = false;
+    }
+
+    /**
+     * Draws one object where the frame placed it, rotated about its center unless rotation is
+     * off.
+     */
+    private void drawSquare(Canvas c, EntityStore squares, int i) {
+        float centerX = frame.x[i];
+        float centerY = frame.y[i];
+        float radius = squares.radius[i];
+
+        SpriteAtlas.Sprite sprite = sprites.sprite(squares.sprite[i]);
+        drawRect.set(centerX - radius, centerY - radius, centerX + radius, centerY + radius);
+        if (!rotateSprites) {
+            c.drawBitmap(sprite.bitmap, sprite.src, drawRect, null);
+            return;
+        }
+        // Rotate the canvas around the circle's center, so the image appears rotated.
+        c.save();
+        c.rotate(frame.angle[i], centerX, centerY);
+        c.drawBitmap(sprite.bitmap, sprite.src, drawRect, null);
+        c.restore();
+    }
+
+    @Override
+    public void detach() {
+        holder = null;
+    }
+
+    @Override
+    public void release() {
+        // The bitmaps belong to the assets.
+    }
+}
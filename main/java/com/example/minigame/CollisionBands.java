@@ -0,0 +1,102 @@
+package com.example.minigame;
+
+import java.util.Arrays;
+
+/**
+ * Splits the entities into horizontal bands of BAND_ROWS grid rows for the collision pass, so
+ * the bands can be resolved independently, one after another or in parallel, with the same
+ * result either way.
+ *
+ * Each entity belongs to the band its center is in when the pass starts. A band only resolves
+ * pairs of its own entities; a pair found across two bands is deferred and resolved after
+ * every band, in band order and then in the order it was found. The split depends only on the
+ * grid, never on the number of threads.
+ *
+ * Owned by a {@link SpatialHash}; only used by Collisions and ParallelPhysics.
+ */
+final class CollisionBands {
+
+    // Grid rows per band. Fewer rows give more bands to spread over cores, but more of the
+    // pairs cross a band edge and are left to the serial pass.
+    static final int BAND_ROWS = 3;
+
+    int count = 0;
+    // order[start[b]..start[b + 1]) are band b's entities, in ascending index order.
+    int[] start = new int[2];
+    int[] order = new int[16];
+    int[] bandOf = new int[16];
+
+    // Deferred pairs per band, two indices each.
+    private int[][] deferred = new int[1][16];
+    private int[] deferredCount = new int[1];
+
+    /**
+     * Assigns every entity to the band of its current center. Call it after the grid's
+     * update(), before any pair of the pass is resolved.
+     */
+    void partition(EntityStore store, SpatialHash grid) {
+        int n = store.count;
+        count = (grid.getRows() + BAND_ROWS - 1) / BAND_ROWS;
+        if (start.length < count + 1) {
+            start = new int[count + 1];
+            deferred = Arrays.copyOf(deferred, count);
+            for (int b = 0; b < count; b++) {
+                if (deferred[b] == null) {
+                    deferred[b] = new int[16];
+                }
+            }
+            deferredCount = new int[count];
+        }
+        if (order.length < n) {
+            order = new int[Math.max(n, order.length * 2)];
+            bandOf = new int[order.length];
+        }
+
+        // Counting sort by band; stable, so each band keeps ascending indices.
+        Arrays.fill(start, 0, count + 1, 0);
+        float[] y = store.y;
+        for (int i = 0; i < n; i++) {
+            int band = grid.row(y[i]) / BAND_ROWS;
+            bandOf[i] = band;
+            start[band + 1]++;
+        }
+        for (int b = 0; b < count; b++) {
+            start[b + 1] += start[b];
+            deferredCount[b] = 0;
+        }
+        // Fill each band from its end backwards so start[] needs no second copy.
+        for (int i = n - 1; i >= 0; i--) {
+            int band = bandOf[i];
+            order[--start[band + 1]] = i;
+        }
+        // start[b + 1] now holds where band b begins; shift back into place.
+        System.arraycopy(start, 1, start, 0, count);
+        start[count] = n;
+    }
+
+    /**
+     * Queues a pair found by band for the serial pass. Only the band's own task calls this.
+     */
+    void defer(int band, int a, int b) {
+        int[] pairs = deferred[band];
+        int k = deferredCount[band];
+        if (k + 2 > pairs.length) {
+            pairs = Arrays.copyOf(pairs, pairs.length * 2);
+            deferred[band] = pairs;
+        }
+        pairs[k] = a;
+        pairs[k + 1] = b;
+        deferredCount[band] = k + 2;
+    }
+
+    int[] deferred(int band) {
+        return deferred[band];
+    }
+
+    /**
+     * @return Number of ints in deferred(band), two per pair.
+     */
+    int deferredCount(int band) {
+        return deferredCount[band];
+    }
+}
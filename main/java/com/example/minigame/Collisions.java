@@ -1,119 +1,347 @@
 package com.example.minigame;
 
-import java.util.ArrayList;
-
 public class Collisions {
 
+    // Continuous mode splits a step so that no object travels more than this fraction of its
+    // radius per substep, and never into more than MAX_SUBSTEPS substeps.
+    public static final float SUBSTEP_TRAVEL = 0.25f;
+    public static final int MAX_SUBSTEPS = 16;
+
     /**
      * Checks and resolves collisions for all circles (fruits, flowers, and worms).
      * The bottom boundary is not handled (so objects that fall off remain removed in GamePanel).
+     * If the store has a {@link SpatialHash} attached it is used as the broad phase, and pairs
+     * are resolved band by band as described in {@link CollisionBands}; otherwise every pair
+     * is tested in index order.
+     *
+     * Only the positions at the end of the step are tested, so objects that move further than
+     * their size per step can pass through each other; see sweep().
      *
-     * @param squares      List of game objects.
+     * @param store        Game objects.
      * @param screenWidth  Screen width in pixels.
      * @param screenHeight Screen height in pixels.
      */
-    public static void checkCollisions(ArrayList<rndSqr> squares, int screenWidth, int screenHeight) {
+    public static void checkCollisions(EntityStore store, int screenWidth, int screenHeight) {
+        collideWithWalls(store, 0, screenWidth);
+        collidePairs(store, 0, screenWidth, screenHeight);
+    }
+
+    /**
+     * Continuous version of checkCollisions() for a substep that has just been integrated.
+     * Every contact is resolved at its time of impact within the substep: an object that
+     * crossed a wall is reflected off it, and a pair that touched at any point of the substep
+     * swaps velocities at the moment of contact and moves on from there for the rest of it.
+     *
+     * Pairs are only found if they are in the same or adjacent cells at the end of the
+     * substep, so the index's cell size must cover the largest diameter plus the distance
+     * two objects can close within one substep; see substeps().
+     *
+     * @param dt Length of the substep in seconds.
+     */
+    public static void sweep(EntityStore store, float dt, int screenWidth, int screenHeight) {
+        collideWithWalls(store, dt, screenWidth);
+        collidePairs(store, dt, screenWidth, screenHeight);
+    }
+
+    /**
+     * @param step Length of the whole step in seconds.
+     * @return Number of substeps to split the step into so no object travels more than
+     * SUBSTEP_TRAVEL of its radius in one of them; 1 while everything is slow enough.
+     */
+    public static int substeps(EntityStore store, float step) {
+        return substeps(store, step, MAX_SUBSTEPS);
+    }
+
+    /**
+     * Like substeps(store, step), but never more than maxSubsteps. Below what SUBSTEP_TRAVEL
+     * needs, a pair closing faster than the index's cells allow for can be missed.
+     */
+    public static int substeps(EntityStore store, float step, int maxSubsteps) {
+        return substeps(maxSpeedRatio(store, 0, store.count), step, maxSubsteps);
+    }
+
+    /**
+     * @param maxRatio Largest maxSpeedRatio() over all entities.
+     */
+    static int substeps(float maxRatio, float step, int maxSubsteps) {
+        float travel = (float) Math.sqrt(maxRatio) * step;
+        if (travel <= SUBSTEP_TRAVEL) {
+            return 1;
+        }
+        return Math.min((int) Math.ceil(travel / SUBSTEP_TRAVEL), maxSubsteps);
+    }
+
+    /**
+     * @return Largest squared speed relative to the radius among entities from..to-1.
+     */
+    static float maxSpeedRatio(EntityStore store, int from, int to) {
+        float[] dx = store.dx, dy = store.dy, radius = store.radius;
+        float maxRatio = 0;
+        for (int i = from; i < to; i++) {
+            float ratio = (dx[i] * dx[i] + dy[i] * dy[i]) / (radius[i] * radius[i]);
+            if (ratio > maxRatio) {
+                maxRatio = ratio;
+            }
+        }
+        return maxRatio;
+    }
+
+    /**
+     * Keeps every object inside the left, right and top edges.
+     *
+     * @param dt Length of the substep just integrated, or 0 to only clamp. An object that was
+     *           inside at the start of the substep is reflected off the wall it crossed, as
+     *           if it had bounced at the moment of impact; one that was already outside (e.g.
+     *           just spawned there) is clamped back in.
+     */
+    private static void collideWithWalls(EntityStore store, float dt, int screenWidth) {
+        collideWithWalls(store, dt, screenWidth, 0, store.count);
+    }
+
+    /**
+     * collideWithWalls() for entities from..to-1 only; each entity is independent of the
+     * others here.
+     */
+    static void collideWithWalls(EntityStore store, float dt, int screenWidth, int from, int to) {
+        float[] x = store.x, y = store.y, dx = store.dx, dy = store.dy, radius = store.radius;
+
         // --- Boundary Collisions (using circle centers) ---
-        for (rndSqr square : squares) {
-            float radius = square.size / 2f;
-            float centerX = square.pos.x + radius;
-            float centerY = square.pos.y + radius;
+        for (int i = from; i < to; i++) {
+            float r = radius[i];
 
             // Left boundary.
-            if (centerX - radius < 0) {
-                square.pos.x = 0;
-                square.dx = Math.abs(square.dx);
+            if (x[i] - r < 0) {
+                x[i] = x[i] - dx[i] * dt - r >= 0 ? 2 * r - x[i] : r;
+                dx[i] = Math.abs(dx[i]);
             }
             // Right boundary.
-            if (centerX + radius > screenWidth) {
-                square.pos.x = screenWidth - square.size;
-                square.dx = -Math.abs(square.dx);
+            if (x[i] + r > screenWidth) {
+                float inner = screenWidth - r;
+                x[i] = x[i] - dx[i] * dt <= inner ? 2 * inner - x[i] : inner;
+                dx[i] = -Math.abs(dx[i]);
             }
             // Top boundary.
-            if (centerY - radius < 0) {
-                square.pos.y = 0;
-                square.dy = Math.abs(square.dy);
+            if (y[i] - r < 0) {
+                y[i] = y[i] - dy[i] * dt - r >= 0 ? 2 * r - y[i] : r;
+                dy[i] = Math.abs(dy[i]);
             }
             // Bottom boundary: intentionally do nothing.
         }
+    }
+
+    /**
+     * @param dt Length of the substep for swept tests, or 0 to only test end positions.
+     */
+    private static void collidePairs(EntityStore store, float dt, int screenWidth, int screenHeight) {
+        int n = store.count;
 
         // --- Inter-Object Collisions using circle collision detection ---
-        int n = squares.size();
-        for (int i = 0; i < n; i++) {
-            rndSqr a = squares.get(i);
-            for (int j = i + 1; j < n; j++) {
-                rndSqr b = squares.get(j);
-
-                // If both objects are non-penalty (fruit/flower) and at least one is a flower (points == 5),
-                // skip collision processing.
-                if (!a.isPenalty() && !b.isPenalty() && (a.getPoints() == 5 || b.getPoints() == 5)) {
-                    continue;
+        SpatialHash grid = store.getIndex();
+        if (grid == null) {
+            // No broad phase attached: test every pair.
+            for (int i = 0; i < n; i++) {
+                for (int j = i + 1; j < n; j++) {
+                    resolvePair(store, i, j, dt);
                 }
+            }
+            return;
+        }
+
+        CollisionBands bands = partition(store, screenWidth, screenHeight);
+        for (int band = 0; band < bands.count; band++) {
+            collideBand(store, band, dt);
+        }
+        resolveDeferred(store, dt);
+    }
+
+    /**
+     * Brings the grid up to date and splits the entities into bands for collideBand().
+     */
+    static CollisionBands partition(EntityStore store, int screenWidth, int screenHeight) {
+        SpatialHash grid = store.getIndex();
+        grid.setBounds(screenWidth, screenHeight);
+        grid.update(store);
+        CollisionBands bands = grid.getBands();
+        bands.partition(store, grid);
+        return bands;
+    }
 
-                if (circlesOverlap(a, b)) {
-                    // Simple elastic collision: swap velocity vectors.
-                    float tempDx = a.dx;
-                    float tempDy = a.dy;
-                    a.dx = b.dx;
-                    a.dy = b.dy;
-                    b.dx = tempDx;
-                    b.dy = tempDy;
-
-                    // Adjust positions so the circles are no longer overlapping.
-                    resolveOverlap(a, b);
+    /**
+     * Resolves every pair of the band's own entities and defers the pairs it finds with other
+     * bands. Only reads and writes the band's entities, so different bands may run at the same
+     * time.
+     */
+    static void collideBand(EntityStore store, int band, float dt) {
+        float[] x = store.x, y = store.y;
+        SpatialHash grid = store.getIndex();
+        CollisionBands bands = grid.getBands();
+        int[] order = bands.order, bandOf = bands.bandOf;
+
+        // Broad phase: only objects in the same or an adjacent cell can touch.
+        int lastColumn = grid.getColumns() - 1;
+        int lastRow = grid.getRows() - 1;
+        for (int k = bands.start[band], end = bands.start[band + 1]; k < end; k++) {
+            int i = order[k];
+            int column = grid.column(x[i]);
+            int row = grid.row(y[i]);
+            int minColumn = Math.max(column - 1, 0);
+            int maxColumn = Math.min(column + 1, lastColumn);
+            int maxRow = Math.min(row + 1, lastRow);
+            for (int r = Math.max(row - 1, 0); r <= maxRow; r++) {
+                for (int c = minColumn; c <= maxColumn; c++) {
+                    for (int j = grid.first(c, r); j != -1; j = grid.next(j)) {
+                        // Each pair is visited from its lower index only.
+                        if (j > i) {
+                            if (bandOf[j] == band) {
+                                resolvePair(store, i, j, dt);
+                            } else {
+                                bands.defer(band, i, j);
+                            }
+                        }
+                    }
                 }
             }
         }
     }
 
     /**
-     * Determines whether two circles overlap.
+     * Resolves the pairs collideBand() deferred, once every band is done.
+     */
+    static void resolveDeferred(EntityStore store, float dt) {
+        CollisionBands bands = store.getIndex().getBands();
+        for (int band = 0; band < bands.count; band++) {
+            int[] pairs = bands.deferred(band);
+            for (int k = 0, n = bands.deferredCount(band); k < n; k += 2) {
+                resolvePair(store, pairs[k], pairs[k + 1], dt);
+            }
+        }
+    }
+
+    private static void resolvePair(EntityStore store, int a, int b, float dt) {
+        if (dt > 0) {
+            sweepPair(store, a, b, dt);
+        } else {
+            collidePair(store, a, b);
+        }
+    }
+
+    /**
+     * Swept narrow phase: finds the first moment within the substep at which the two circles
+     * touched, assuming both moved in a straight line. If there is one, both are moved back to
+     * it, swap velocities and travel the rest of the substep with the swapped ones. Pairs that
+     * already overlapped at the start of the substep fall back to collidePair().
      */
-    private static boolean circlesOverlap(rndSqr a, rndSqr b) {
-        float radiusA = a.size / 2f;
-        float radiusB = b.size / 2f;
-        float centerAX = a.pos.x + radiusA;
-        float centerAY = a.pos.y + radiusA;
-        float centerBX = b.pos.x + radiusB;
-        float centerBY = b.pos.y + radiusB;
+    private static void sweepPair(EntityStore store, int a, int b, float dt) {
+        if (skipPair(store.flags[a], store.flags[b])) {
+            return;
+        }
+
+        float[] x = store.x, y = store.y, dx = store.dx, dy = store.dy;
+        float offsetX = x[b] - x[a];
+        float offsetY = y[b] - y[a];
+        float radiusSum = store.radius[a] + store.radius[b];
+        float gap = offsetX * offsetX + offsetY * offsetY - radiusSum * radiusSum;
+
+        // Relative travel of b over the substep. Going back a fraction u of the substep from
+        // its end, the offset is (offset - travel * u); solve |offset - travel * u| = radiusSum.
+        float travelX = (dx[b] - dx[a]) * dt;
+        float travelY = (dy[b] - dy[a]) * dt;
+        float travelSquared = travelX * travelX + travelY * travelY;
+        if (travelSquared == 0) {
+            if (gap < 0) {
+                collidePair(store, a, b);
+            }
+            return;
+        }
+        float halfB = offsetX * travelX + offsetY * travelY;
+        float discriminant = halfB * halfB - travelSquared * gap;
+        if (discriminant < 0) {
+            return;
+        }
+        float root = (float) Math.sqrt(discriminant);
+        // The circles overlapped between back = later and back = earlier.
+        float later = (halfB - root) / travelSquared;
+        float earlier = (halfB + root) / travelSquared;
+        if (gap >= 0 && later <= 0) {
+            // Apart at the end and not touching earlier in the substep.
+            return;
+        }
+        if (earlier > 1) {
+            // Already overlapping when the substep started.
+            if (gap < 0) {
+                collidePair(store, a, b);
+            }
+            return;
+        }
+
+        // Back to the moment of contact with the old velocities, then forward again with the
+        // swapped ones: a net shift of the velocity difference over that time.
+        float shiftX = travelX * earlier;
+        float shiftY = travelY * earlier;
+        x[a] += shiftX;
+        y[a] += shiftY;
+        x[b] -= shiftX;
+        y[b] -= shiftY;
 
-        float dx = centerAX - centerBX;
-        float dy = centerAY - centerBY;
-        float distanceSquared = dx * dx + dy * dy;
-        float radiusSum = radiusA + radiusB;
-        return distanceSquared < (radiusSum * radiusSum);
+        float tempDx = dx[a];
+        float tempDy = dy[a];
+        dx[a] = dx[b];
+        dy[a] = dy[b];
+        dx[b] = tempDx;
+        dy[b] = tempDy;
     }
 
     /**
-     * Resolves the overlap between two circles by pushing them apart along the line
-     * connecting their centers.
+     * Narrow phase for one candidate pair: computes the center offset and distance once and,
+     * if the circles overlap, swaps their velocities and pushes them apart.
      */
-    private static void resolveOverlap(rndSqr a, rndSqr b) {
-        float radiusA = a.size / 2f;
-        float radiusB = b.size / 2f;
-        float centerAX = a.pos.x + radiusA;
-        float centerAY = a.pos.y + radiusA;
-        float centerBX = b.pos.x + radiusB;
-        float centerBY = b.pos.y + radiusB;
-
-        float dx = centerBX - centerAX;
-        float dy = centerBY - centerAY;
-        float distance = (float) Math.sqrt(dx * dx + dy * dy);
+    private static void collidePair(EntityStore store, int a, int b) {
+        // If both objects are non-penalty (fruit/flower) and at least one is a flower,
+        // skip collision processing.
+        if (skipPair(store.flags[a], store.flags[b])) {
+            return;
+        }
+
+        float offsetX = store.x[b] - store.x[a];
+        float offsetY = store.y[b] - store.y[a];
+        float distanceSquared = offsetX * offsetX + offsetY * offsetY;
+        float radiusSum = store.radius[a] + store.radius[b];
+        if (distanceSquared >= radiusSum * radiusSum) {
+            return;
+        }
 
+        // Simple elastic collision: swap velocity vectors.
+        float[] dx = store.dx, dy = store.dy;
+        float tempDx = dx[a];
+        float tempDy = dy[a];
+        dx[a] = dx[b];
+        dy[a] = dy[b];
+        dx[b] = tempDx;
+        dy[b] = tempDy;
+
+        // Push each circle away half the overlap distance, along the line connecting the centers.
+        float distance = (float) Math.sqrt(distanceSquared);
         if (distance == 0) {
             // Avoid division by zero.
-            dx = 1;
-            dy = 0;
+            offsetX = 1;
+            offsetY = 0;
             distance = 1;
         }
-        float overlap = (radiusA + radiusB) - distance;
-        // Push each circle away half the overlap distance.
-        float separationX = (dx / distance) * (overlap / 2);
-        float separationY = (dy / distance) * (overlap / 2);
+        float halfOverlap = (radiusSum - distance) / 2;
+        float separationX = (offsetX / distance) * halfOverlap;
+        float separationY = (offsetY / distance) * halfOverlap;
+
+        store.x[a] -= separationX;
+        store.y[a] -= separationY;
+        store.x[b] += separationX;
+        store.y[b] += separationY;
+    }
 
-        a.pos.x -= separationX;
-        a.pos.y -= separationY;
-        b.pos.x += separationX;
-        b.pos.y += separationY;
+    /**
+     * Flowers pass through other point-giving objects; only pests collide with them.
+     */
+    static boolean skipPair(int flagsA, int flagsB) {
+        int either = flagsA | flagsB;
+        return (either & EntityStore.FLAG_PENALTY) == 0 && (either & EntityStore.FLAG_FLOWER) != 0;
     }
-}
\ No newline at end of file
+}
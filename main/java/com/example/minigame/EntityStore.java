@@ -0,0 +1,246 @@
+package com.example.minigame;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Structure-of-arrays storage for every object on screen. Entity i is described by element i
+ * of each array; only indices below {@link #count} are live. Removal swaps the last entity into
+ * the freed slot, so indices are not stable across remove().
+ *
+ * Positions are circle centers. Not thread-safe; only the game thread uses it.
+ */
+public class EntityStore {
+
+    public static final int FLAG_PENALTY = 1;  // Pest: costs a life when tapped.
+    public static final int FLAG_FLOWER = 2;   // Worth +5 and passes through other fruit/flowers.
+
+    // Number of per-entity arrays below.
+    private static final int FIELDS = 13;
+
+    public int count = 0;
+
+    public float[] x;
+    public float[] y;
+    public float[] dx;             // Pixels per second.
+    public float[] dy;
+    public float[] angle;          // Degrees.
+    public float[] radius;
+    public int[] flags;
+
+    public float[] rotationSpeed;  // Degrees per second.
+    public int[] points;
+    public int[] sprite;           // SpriteAtlas sprite id.
+
+    // State at the start of the last update, used to interpolate between simulation steps.
+    public float[] prevX;
+    public float[] prevY;
+    public float[] prevAngle;
+
+    // Spatial index kept in step with add/remove, if one is attached.
+    private SpatialHash index;
+
+    // Counters for checking that the game reaches a steady state with no allocation.
+    private long hits = 0;
+    private long misses = 0;
+
+    public EntityStore(int initialCapacity) {
+        allocate(Math.max(1, initialCapacity));
+    }
+
+    /**
+     * Attaches a spatial index that follows every add() and remove() from now on.
+     */
+    public void setIndex(SpatialHash index) {
+        this.index = index;
+        index.clear();
+        for (int i = 0; i < count; i++) {
+            index.onAdd(i);
+        }
+    }
+
+    public SpatialHash getIndex() {
+        return index;
+    }
+
+    /**
+     * Appends an entity and returns its index. Fields not passed in (angle, rotationSpeed and the
+     * interpolation state) are reset so nothing leaks from a previously removed entity.
+     */
+    public int add(float centerX, float centerY, float r, float vx, float vy, int entityFlags,
+                   int entityPoints, int spriteId) {
+        if (count == x.length) {
+            misses++;
+            grow();
+        } else {
+            hits++;
+        }
+        int i = count++;
+        x[i] = centerX;
+        y[i] = centerY;
+        dx[i] = vx;
+        dy[i] = vy;
+        angle[i] = 0;
+        radius[i] = r;
+        flags[i] = entityFlags;
+        rotationSpeed[i] = 0;
+        points[i] = entityPoints;
+        sprite[i] = spriteId;
+        prevX[i] = centerX;
+        prevY[i] = centerY;
+        prevAngle[i] = 0;
+        if (index != null) {
+            index.onAdd(i);
+        }
+        return i;
+    }
+
+    /**
+     * Removes entity i by moving the last entity into its slot. When removing inside a loop,
+     * iterate backwards so the moved entity has already been visited.
+     */
+    public void remove(int i) {
+        int last = --count;
+        if (index != null) {
+            index.onRemove(i, last);
+        }
+        if (i != last) {
+            x[i] = x[last];
+            y[i] = y[last];
+            dx[i] = dx[last];
+            dy[i] = dy[last];
+            angle[i] = angle[last];
+            radius[i] = radius[last];
+            flags[i] = flags[last];
+            rotationSpeed[i] = rotationSpeed[last];
+            points[i] = points[last];
+            sprite[i] = sprite[last];
+            prevX[i] = prevX[last];
+            prevY[i] = prevY[last];
+            prevAngle[i] = prevAngle[last];
+        }
+    }
+
+    public void clear() {
+        count = 0;
+        if (index != null) {
+            index.clear();
+        }
+    }
+
+    /**
+     * @return Size of saveState()'s output for count entities.
+     */
+    static int stateBytes(int count) {
+        return 4 + count * FIELDS * 4;
+    }
+
+    /**
+     * Writes every live entity, one field array after another.
+     */
+    void saveState(ByteBuffer out) {
+        out.putInt(count);
+        int n = count;
+        out.asFloatBuffer().put(x, 0, n).put(y, 0, n).put(dx, 0, n).put(dy, 0, n)
+                .put(angle, 0, n).put(radius, 0, n).put(rotationSpeed, 0, n)
+                .put(prevX, 0, n).put(prevY, 0, n).put(prevAngle, 0, n);
+        out.position(out.position() + 10 * n * 4);
+        out.asIntBuffer().put(flags, 0, n).put(points, 0, n).put(sprite, 0, n);
+        out.position(out.position() + 3 * n * 4);
+    }
+
+    /**
+     * Replaces every entity with what saveState() wrote, growing the arrays if needed, and
+     * rebuilds the index.
+     */
+    void restoreState(ByteBuffer in) {
+        int n = in.getInt();
+        if (n < 0 || n > (in.remaining() / 4) / FIELDS) {
+            throw new BufferUnderflowException();
+        }
+        while (x.length < n) {
+            grow();
+        }
+        in.asFloatBuffer().get(x, 0, n).get(y, 0, n).get(dx, 0, n).get(dy, 0, n)
+                .get(angle, 0, n).get(radius, 0, n).get(rotationSpeed, 0, n)
+                .get(prevX, 0, n).get(prevY, 0, n).get(prevAngle, 0, n);
+        in.position(in.position() + 10 * n * 4);
+        in.asIntBuffer().get(flags, 0, n).get(points, 0, n).get(sprite, 0, n);
+        in.position(in.position() + 3 * n * 4);
+        count = n;
+        if (index != null) {
+            setIndex(index);
+        }
+    }
+
+    public boolean isPenalty(int i) {
+        return (flags[i] & FLAG_PENALTY) != 0;
+    }
+
+    /**
+     * @return true if any point-giving (non-penalty) entity is alive.
+     */
+    public boolean hasPointEntities() {
+        for (int i = 0; i < count; i++) {
+            if ((flags[i] & FLAG_PENALTY) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return Number of entities that fit without reallocating.
+     */
+    public int capacity() {
+        return x.length;
+    }
+
+    /**
+     * @return Number of add() calls that fit in the existing arrays.
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return Number of add() calls that had to grow the arrays.
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    private void allocate(int capacity) {
+        x = new float[capacity];
+        y = new float[capacity];
+        dx = new float[capacity];
+        dy = new float[capacity];
+        angle = new float[capacity];
+        radius = new float[capacity];
+        flags = new int[capacity];
+        rotationSpeed = new float[capacity];
+        points = new int[capacity];
+        sprite = new int[capacity];
+        prevX = new float[capacity];
+        prevY = new float[capacity];
+        prevAngle = new float[capacity];
+    }
+
+    private void grow() {
+        int capacity = x.length * 2;
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        dx = Arrays.copyOf(dx, capacity);
+        dy = Arrays.copyOf(dy, capacity);
+        angle = Arrays.copyOf(angle, capacity);
+        radius = Arrays.copyOf(radius, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        rotationSpeed = Arrays.copyOf(rotationSpeed, capacity);
+        points = Arrays.copyOf(points, capacity);
+        sprite = Arrays.copyOf(sprite, capacity);
+        prevX = Arrays.copyOf(prevX, capacity);
+        prevY = Arrays.copyOf(prevY, capacity);
+        prevAngle = Arrays.copyOf(prevAngle, capacity);
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.minigame;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Ring buffer of per-frame timings for the game loop: time spent in each phase, the frame
+ * interval, the entity count and a running count of dropped (late) frames.
+ *
+ * Recording and percentile queries allocate nothing, so this can stay enabled during play.
+ * Written and read by the game thread only.
+ */
+public class FrameStats {
+
+    // Series recorded per frame. The phase times are summed over all ticks in a frame.
+    public static final int UPDATE = 0;   // Spawning, movement, falling off.
+    public static final int COLLIDE = 1;  // Collisions.sweep, over all substeps.
+    public static final int DRAW = 2;     // Issuing draw calls onto the canvas.
+    public static final int POST = 3;     // unlockCanvasAndPost.
+    public static final int FRAME = 4;    // Interval since the previous frame.
+    public static final int SERIES = 5;
+
+    private static final String[] NAMES = {"update", "collide", "draw", "post", "frame"};
+
+    private final int capacity;
+    private final long[][] samples;
+    private final int[] entities;
+    private final long[] scratch;
+
+    private final long[] current = new long[SERIES];
+    private int currentEntities;
+    private long frames = 0;
+    private long droppedFrames = 0;
+
+    /**
+     * @param capacity Number of most recent frames kept.
+     */
+    public FrameStats(int capacity) {
+        this.capacity = capacity;
+        samples = new long[SERIES][capacity];
+        entities = new int[capacity];
+        scratch = new long[capacity];
+    }
+
+    /**
+     * Adds time spent in one phase of the frame being recorded.
+     */
+    public void add(int series, long nanos) {
+        current[series] += nanos;
+    }
+
+    public void setEntityCount(int count) {
+        currentEntities = count;
+    }
+
+    /**
+     * Closes the current frame and stores it in the ring.
+     *
+     * @param intervalNanos Time since the previous frame started.
+     * @param budgetNanos   Display frame period. An interval of more than 1.5 periods counts
+     *                      every missed vsync as a dropped frame.
+     */
+    public void endFrame(long intervalNanos, long budgetNanos) {
+        current[FRAME] = intervalNanos;
+        int slot = (int) (frames % capacity);
+        for (int s = 0; s < SERIES; s++) {
+            samples[s][slot] = current[s];
+            current[s] = 0;
+        }
+        entities[slot] = currentEntities;
+        frames++;
+
+        if (budgetNanos > 0 && intervalNanos * 2 > budgetNanos * 3) {
+            droppedFrames += (intervalNanos + budgetNanos / 2) / budgetNanos - 1;
+        }
+    }
+
+    /**
+     * @param percentile 0-100.
+     * @return The given percentile of a series over the frames in the ring, in nanoseconds.
+     */
+    public long percentile(int series, double percentile) {
+        int n = size();
+        if (n == 0) {
+            return 0;
+        }
+        System.arraycopy(samples[series], 0, scratch, 0, n);
+        Arrays.sort(scratch, 0, n);
+        int rank = (int) Math.ceil(percentile / 100.0 * n) - 1;
+        return scratch[Math.max(0, Math.min(n - 1, rank))];
+    }
+
+    /**
+     * @return Entity count of the most recent frame.
+     */
+    public int getEntityCount() {
+        return frames == 0 ? 0 : entities[(int) ((frames - 1) % capacity)];
+    }
+
+    public long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    public long getFrameCount() {
+        return frames;
+    }
+
+    /**
+     * @return Number of frames currently held in the ring.
+     */
+    public int size() {
+        return (int) Math.min(frames, capacity);
+    }
+
+    public void reset() {
+        Arrays.fill(current, 0);
+        frames = 0;
+        droppedFrames = 0;
+    }
+
+    /**
+     * Writes the frames in the ring, oldest first, as CSV with times in microseconds.
+     */
+    public void writeCsv(Writer out) throws IOException {
+        out.write("frame");
+        for (String name : NAMES) {
+            out.write(',');
+            out.write(name);
+            out.write("_us");
+        }
+        out.write(",entities\n");
+
+        int n = size();
+        long first = frames - n;
+        for (long f = first; f < frames; f++) {
+            int slot = (int) (f % capacity);
+            out.write(Long.toString(f));
+            for (int s = 0; s < SERIES; s++) {
+                out.write(',');
+                out.write(Long.toString(samples[s][slot] / 1000));
+            }
+            out.write(',');
+            out.write(Integer.toString(entities[slot]));
+            out.write('\n');
+        }
+        out.write("# dropped_frames," + droppedFrames + "\n");
+    }
+}
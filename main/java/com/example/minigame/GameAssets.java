@@ -0,0 +1,100 @@
+package com.example.minigame;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Typeface;
+
+/**
+ * Everything GamePanel needs to draw, decoded and scaled up front by {@link AssetPreloader}.
+ * Owned by the activity and shared by every game it starts.
+ */
+public class GameAssets {
+
+    // Sprite images. SpriteAtlas ids, and with them Simulation's sprite ids, are laid out in
+    // this order: fruits, then pests, then flowers.
+    static final int[] FRUIT_IMAGES = {
+            R.drawable.banana,
+            R.drawable.apple,
+            R.drawable.cherry,
+            R.drawable.mango,
+            R.drawable.plum,
+            R.drawable.strawberry,
+            R.drawable.raspberry,
+            R.drawable.orange
+    };
+
+    // Array for pests (randomized images)
+    static final int[] PEST_IMAGES = {
+            R.drawable.pest1,
+            R.drawable.pest2,
+            R.drawable.pest3
+    };
+
+    // Array of flower images (the +5 object)
+    static final int[] FLOWER_IMAGES = {
+            R.drawable.flower1,
+            R.drawable.flower2,
+            R.drawable.flower3
+    };
+
+    static final int BACKGROUND_IMAGE = R.drawable.gamebackground;
+
+    private final SpriteAtlas sprites;
+    private final Bitmap background;
+    private final Typeface font;
+    private final Resources resources;
+    // Background decoded for a surface size other than the preloaded one, if any. Game
+    // thread only.
+    private final BackgroundLoader loader = new BackgroundLoader();
+    private Bitmap resized;
+
+    /**
+     * @param background Game background, already cropped to fill the screen.
+     * @param resources  To decode the background again for another surface size.
+     */
+    public GameAssets(SpriteAtlas sprites, Bitmap background, Typeface font,
+                      Resources resources) {
+        this.sprites = sprites;
+        this.background = background;
+        this.font = font;
+        this.resources = resources;
+    }
+
+    public SpriteAtlas getSprites() {
+        return sprites;
+    }
+
+    public Typeface getFont() {
+        return font;
+    }
+
+    /**
+     * @return The background for a surface of the given size: the preloaded one if it was
+     * prepared for that size, otherwise one decoded for it. A bitmap returned for another
+     * size than the preloaded one is only valid until the next call for a different size.
+     * Game thread only.
+     */
+    public Bitmap getBackground(int width, int height) {
+        if ((background.getWidth() == width && background.getHeight() == height)
+                || width <= 0 || height <= 0) {
+            return background;
+        }
+        if (resized != null && resized.getWidth() == width && resized.getHeight() == height) {
+            return resized;
+        }
+        // The previous size's bitmap is done with; decode into it if it is big enough.
+        resized = loader.load(resources, BACKGROUND_IMAGE, width, height, resized);
+        return resized != null ? resized : background;
+    }
+
+    /**
+     * Frees the bitmaps. Nothing may draw from these assets afterwards.
+     */
+    public void recycle() {
+        sprites.recycle();
+        background.recycle();
+        if (resized != null) {
+            resized.recycle();
+        }
+    }
+}
@@ -2,13 +2,11 @@ package com.example.minigame;
 
 import android.content.Context;
 import android.content.Intent;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-import android.graphics.Canvas;
-import android.graphics.Paint;
-import android.graphics.PointF;
-import android.graphics.Typeface;
+import android.content.pm.ApplicationInfo;
 import android.os.Handler;
+import android.os.PowerManager;
+import android.util.Log;
+import android.view.Display;
 import android.view.LayoutInflater;
 import android.view.MotionEvent;
 import android.view.SurfaceHolder;
@@ -17,216 +15,385 @@ import android.view.View;
 import android.widget.FrameLayout;
 import android.widget.ImageButton;
 import android.widget.TextView;
-import android.graphics.Color;
 import android.view.animation.AnimationUtils;
 
 import androidx.annotation.NonNull;
 
-import java.util.ArrayList;
-import java.util.Iterator;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
 import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 
 public class GamePanel extends SurfaceView implements SurfaceHolder.Callback {
 
+    // The last finished round, in the app's files directory; see ReplayPlayer.
+    public static final String REPLAY_FILE = "last_replay.bin";
+    // The replay of a game captured by saveState(), kept out of the snapshot for its size.
+    private static final String SNAPSHOT_REPLAY_FILE = "snapshot_replay.bin";
+    // Writes SNAPSHOT_REPLAY_FILE off the UI thread, in order. Shared by every panel, so one
+    // restoring a game can wait for the write of the panel that captured it.
+    private static final ExecutorService SNAPSHOT_WRITER = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "SnapshotWriter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     private SurfaceHolder holder;
-    private ArrayList<rndSqr> squares = new ArrayList<>();
-    private Random rnd = new Random();
-    private boolean running = true;
-    private Handler handler = new Handler();
-    private int score = 0;
-    private int lives = 3;
-    // Wave parameters
-    private int squaresPerWave = 3;
-    private int waveSpeed = 20;  // Constant fast speed throughout the game.
-    private int waveCount = 0;
-    // Initial pest probability: 15%
-    private double pestProbability = 0.15;
-
-    private long gameStartTime;
-    private long gameDuration = 2 * 60 * 1000; // 2 minutes
-    private Bitmap background;
-
-    private int[] imageResources = {
-            R.drawable.banana,
-            R.drawable.apple,
-            R.drawable.cherry,
-            R.drawable.mango,
-            R.drawable.plum,
-            R.drawable.strawberry,
-            R.drawable.raspberry,
-            R.drawable.orange
-    };
-
-    // Array for pests (randomized images)
-    private int[] pestImageResources = {
-            R.drawable.pest1,
-            R.drawable.pest2,
-            R.drawable.pest3
-    };
-
-    // Array of flower images (the +5 object)
-    private int[] flowerImageResource = {
-            R.drawable.flower1,
-            R.drawable.flower2,
-            R.drawable.flower3
-    };
-
-    public GamePanel(Context context) {
+    // All game state and rules; this view only renders it and forwards input.
+    private final Simulation sim;
+    private GameThread gameThread;
+    // Whether the surface exists, i.e. between surfaceCreated and surfaceDestroyed. UI thread only.
+    private boolean surfaceReady = false;
+    // Between pause() and resume(); no game thread runs meanwhile. UI thread only.
+    private boolean paused = false;
+    // Created with the first game thread, once the display is known, and kept across rounds.
+    private QualityScheduler quality;
+    private volatile int surfaceWidth;
+    private volatile int surfaceHeight;
+    // Touch samples queued by onTouchEvent on the UI thread. The game thread drains them into
+    // one batch per tick and hit-tests it in a single pass.
+    private final TouchQueue touches = new TouchQueue(256);
+    private final TouchBatch touchBatch = new TouchBatch(32);
+    // Every round is recorded, and the last one kept on disk, so it can be replayed exactly.
+    private final ReplayRecorder recorder = new ReplayRecorder(16 * 1024);
+    // Size of the replay last handed to SNAPSHOT_WRITER; -1 if the file does not hold this
+    // round's replay. A round's replay only grows, so an equal size means the same bytes.
+    private volatile int savedReplaySize = -1;
+
+    // Draws the simulation; replaced by a CanvasRenderer if it cannot start. Read by the game
+    // thread, configured from the UI thread.
+    private volatile Renderer renderer;
+    // Preloaded during the countdown and owned by the activity.
+    private final GameAssets assets;
+
+    // Per-frame timings, recorded by the game thread. The overlay is on by default in debuggable
+    // builds and toggled with a three-finger tap.
+    private final FrameStats stats = new FrameStats(512);
+    private volatile boolean showStats;
+
+    // Inflated at the first game over and shown again after every later one.
+    private View gameOverView;
+
+    /**
+     * Draws with OpenGL ES where available, with Canvas otherwise.
+     *
+     * @param assets Sprites, background and font, ready to draw.
+     */
+    public GamePanel(Context context, GameAssets assets) {
+        this(context, assets, new GlRenderer(assets));
+    }
+
+    /**
+     * @param assets   Sprites, background and font, ready to draw.
+     * @param renderer Draws every frame, e.g. a {@link NoOpRenderer} to run the game without
+     *                 drawing.
+     */
+    public GamePanel(Context context, GameAssets assets, Renderer renderer) {
         super(context);
         holder = getHolder();
         holder.addCallback(this);
-        background = BitmapFactory.decodeResource(getResources(), R.drawable.background);
+        this.assets = assets;
+        this.renderer = renderer;
+        sim = new Simulation(new Random().nextLong(), getWidth(), getHeight(),
+                GameAssets.FRUIT_IMAGES.length, GameAssets.PEST_IMAGES.length,
+                GameAssets.FLOWER_IMAGES.length);
+        sim.setListener(new Simulation.Listener() {
+            @Override
+            public void onFruitTapped() {
+                SoundManager.getInstance(getContext()).playFruitTap();
+            }
+
+            @Override
+            public void onFlowerTapped() {
+                SoundManager.getInstance(getContext()).playFlowerTap();
+            }
+
+            @Override
+            public void onPestTapped() {
+                SoundManager.getInstance(getContext()).playPestTap();
+            }
+        });
+        sim.setStats(stats);
+        sim.setPhysics(new ParallelPhysics(ForkJoinPool.commonPool(),
+                ParallelPhysics.DEFAULT_THRESHOLD));
+        recorder.start(sim);
+        showStats = (getContext().getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+        renderer.setShowStats(showStats);
+
         // Ensure any lingering game over sound is paused.
         SoundManager.getInstance(getContext()).pauseGameOverSfx();
     }
 
     /**
-     * Spawns waves of objects. When there are no non-penalty (point-giving) objects on screen,
-     * a new wave is spawned.
+     * Starts a new round on this panel, keeping the surface, the assets and every buffer.
+     * Called on the UI thread once the previous round is over.
      */
-    private void startWaves() {
-        handler.postDelayed(new Runnable() {
-            @Override
-            public void run() {
-                if (!running) return;
-
-                long elapsedTime = System.currentTimeMillis() - gameStartTime;
-                if (elapsedTime >= gameDuration || lives <= 0) {
-                    running = false;
-                    handler.removeCallbacksAndMessages(null);
-                    showGameOverScreen();
-                    return;
-                }
+    public void reset() {
+        if (gameThread != null) {
+            // Already stopped itself at game over; joining makes its last writes visible here.
+            gameThread.stopAndJoin();
+            gameThread = null;
+        }
+        sim.reset(new Random().nextLong());
+        recorder.start(sim);
+        savedReplaySize = -1;
+        touches.clear();
+        touchBatch.reset();
+        stats.reset();
+        renderer.invalidate();
+        SoundManager.getInstance(getContext()).pauseGameOverSfx();
+        SoundManager.getInstance(getContext()).startBgm(SoundManager.GAME_MUSIC);
+        if (surfaceReady && !paused) {
+            startGameThread(true);
+        }
+    }
 
-                // If no point-giving objects remain, spawn a new wave.
-                if (squares.stream().noneMatch(rndSqr::isPointSquare)) {
-                    spawnWave(squaresPerWave, waveSpeed);
-                    waveSpeed += 2.5;  // Increase base speed by 2.5 every wave.
-                    waveCount++;
+    /**
+     * Stops the game loop until resume(); the game does not advance meanwhile. Called from the
+     * activity's onPause().
+     */
+    public void pause() {
+        paused = true;
+        if (gameThread != null) {
+            gameThread.stopAndJoin();
+            gameThread = null;
+        }
+        if (!sim.isOver()) {
+            SoundManager.getInstance(getContext()).pauseBgm();
+        }
+    }
 
-                    // Every 3 waves, increase number of objects per wave by 2 (capped at 8).
-                    if (waveCount % 3 == 0) {
-                        squaresPerWave = Math.min(squaresPerWave + 2, 8);
-                    }
+    /**
+     * Called from the activity's onResume().
+     */
+    public void resume() {
+        if (!paused) {
+            return;
+        }
+        paused = false;
+        if (surfaceReady && !sim.isOver()) {
+            SoundManager.getInstance(getContext()).startBgm(SoundManager.GAME_MUSIC);
+            startGameThread(true);
+        }
+    }
 
-                    // Every wave, increase pest spawn probability by 0.002, capped at 0.5.
-                    pestProbability = Math.min(pestProbability + 0.002, 0.5);
+    /**
+     * Captures the game in progress, e.g. for the activity's saved state. UI thread only,
+     * while paused. The replay so far goes to a file in the background, and only if it has
+     * grown since the last call, so a brief pause costs a copy of the replay at most.
+     *
+     * @return null once the game is over; there is nothing to continue then.
+     */
+    public byte[] saveState() {
+        if (sim.isOver()) {
+            return null;
+        }
+        int size = recorder.size();
+        if (size != savedReplaySize) {
+            savedReplaySize = size;
+            byte[] replay = recorder.toByteArray();
+            File file = new File(getContext().getFilesDir(), SNAPSHOT_REPLAY_FILE);
+            SNAPSHOT_WRITER.execute(() -> {
+                try (OutputStream out = new FileOutputStream(file)) {
+                    out.write(replay);
+                } catch (IOException e) {
+                    Log.w("GamePanel", "Could not save the snapshot's replay", e);
+                    savedReplaySize = -1;
                 }
-
-                updateSquares();
-                render();
-                handler.postDelayed(this, 50);
-            }
-        }, 50);
+            });
+        }
+        return GameSnapshot.capture(sim, recorder);
     }
 
     /**
-     * Spawns a wave of objects.
-     * - With probability based on pestProbability, a penalty (pest) is spawned.
-     * - Otherwise, a non-penalty is spawned:
-     *    • 10% chance for a flower (worth +5)
-     *    • Otherwise a fruit (worth +1)
+     * Continues a game captured by saveState(), in place of the one this panel started with.
+     * UI thread only, before the panel is attached to a window.
+     *
+     * The snapshot alone is not enough: the game's replay is in a file next to it, written by
+     * saveState() in the background. This waits for a write that is still queued, e.g. when
+     * the activity was recreated in the same process, and reads the file back. If the file is
+     * missing or holds another game's replay, e.g. because the process died before the write
+     * finished, the snapshot cannot be restored.
+     *
+     * @return false if the snapshot or its replay could not be read; a new game starts
+     * instead.
      */
-    private void spawnWave(int numSquares, int speed) {
-        for (int i = 0; i < numSquares; i++) {
-            int x = rnd.nextInt(getWidth() - 100);
-            x = Math.max(x, 0);
-            PointF pos = new PointF(x, 0);
-            int size = 150;
-            boolean isPenalty = (rnd.nextDouble() < pestProbability);
-            Bitmap image;
-            if (isPenalty) {
-                int pestIndex = rnd.nextInt(pestImageResources.length);
-                image = BitmapFactory.decodeResource(getResources(), pestImageResources[pestIndex]);
-                // Pests fall 1.5 times faster.
-                squares.add(new rndSqr(pos, size, image, 0, (int)(speed * 1.5), true));
-            } else {
-                if (rnd.nextDouble() < 0.1) {  // 10% chance for a flower
-                    int flowerIndex = rnd.nextInt(flowerImageResource.length);
-                    image = BitmapFactory.decodeResource(getResources(), flowerImageResource[flowerIndex]);
-                    rndSqr obj = new rndSqr(pos, size, image, speed);
-                    obj.setPoints(5);
-                    squares.add(obj);
-                } else {  // Otherwise, spawn a fruit.
-                    int imageResId = imageResources[rnd.nextInt(imageResources.length)];
-                    image = BitmapFactory.decodeResource(getResources(), imageResId);
-                    rndSqr obj = new rndSqr(pos, size, image, speed);
-                    obj.setPoints(1);
-                    squares.add(obj);
-                }
-            }
+    public boolean restoreState(byte[] snapshot) {
+        long start = System.nanoTime();
+        awaitSnapshotWrites();
+        File file = new File(getContext().getFilesDir(), SNAPSHOT_REPLAY_FILE);
+        try (InputStream replay = new FileInputStream(file)) {
+            GameSnapshot.restore(snapshot, replay, sim, recorder);
+        } catch (IOException e) {
+            Log.w("GamePanel", "Could not restore the game", e);
+            sim.reset(new Random().nextLong());
+            recorder.start(sim);
+            savedReplaySize = -1;
+            return false;
         }
+        // The file already holds exactly this replay.
+        savedReplaySize = recorder.size();
+        Log.d("GamePanel", "Restored " + snapshot.length + " bytes in "
+                + (System.nanoTime() - start) / 1000 + " us");
+        return true;
     }
 
-    private void updateSquares() {
-        Iterator<rndSqr> iterator = squares.iterator();
-        while (iterator.hasNext()) {
-            rndSqr square = iterator.next();
-            square.update(getWidth(), getHeight());
-            if (square.pos.y > getHeight()) {
-                if (!square.isPenalty()) {
-                    lives--;
-                }
-                iterator.remove();
-            }
+    private static void awaitSnapshotWrites() {
+        try {
+            SNAPSHOT_WRITER.submit(() -> { }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // The empty task cannot fail.
         }
-        Collisions.checkCollisions(squares, getWidth(), getHeight());
     }
 
-    private void render() {
-        Canvas c = holder.lockCanvas();
-        if (c != null) {
-            c.drawBitmap(background, 0, 0, null);
-            for (rndSqr square : squares) {
-                square.draw(c);
+    /**
+     * Applies queued input and advances the simulation by one fixed step. Runs on the game
+     * thread only.
+     */
+    void tick() {
+        sim.setBounds(surfaceWidth, surfaceHeight);
+        touches.drain(touchBatch);
+        recorder.onTick(sim, touchBatch);
+        sim.applyTouches(touchBatch);
+        sim.tick();
+
+        if (sim.isOver()) {
+            gameThread.requestStop();
+            recorder.finish(sim);
+            saveReplay();
+            EntityStore squares = sim.getSquares();
+            Log.d("GamePanel", "Entity store: capacity=" + squares.capacity() + " hits="
+                    + squares.getHits() + " misses=" + squares.getMisses());
+            if (showStats) {
+                dumpStats();
             }
+            showGameOverScreen(RunRecord.of(sim, System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * @return Length of one simulation step. Game thread only.
+     */
+    long getStepNanos() {
+        return sim.getStepNanos();
+    }
 
-            Typeface customFont = Typeface.createFromAsset(getContext().getAssets(), "fonts/myfont.ttf");
+    /**
+     * Applies the scheduler's current level to the renderer and the simulation. Game thread
+     * only.
+     */
+    void applyQuality(QualityScheduler quality) {
+        QualityScheduler.Level level = quality.getLevel();
+        renderer.setQuality(level);
+        sim.setMaxSubsteps(level.maxSubsteps);
+        Log.d("GamePanel", "Quality level " + quality.getLevelIndex());
+    }
+
+    /**
+     * Binds the renderer to the surface, falling back to Canvas if it cannot draw on it. Runs
+     * on the game thread only, before its first frame.
+     */
+    void attachRenderer() {
+        if (renderer.attach(holder)) {
+            return;
+        }
+        Log.w("GamePanel", "Renderer unavailable, drawing with Canvas");
+        // Published before it is configured, so a concurrent setSize() reaches one or the other.
+        Renderer fallback = new CanvasRenderer(assets);
+        renderer = fallback;
+        fallback.setSize(surfaceWidth, surfaceHeight);
+        fallback.setShowStats(showStats);
+        fallback.attach(holder);
+    }
 
-            Paint paint = new Paint();
-            paint.setColor(Color.GREEN);
-            paint.setTextSize(70);
-            paint.setTypeface(customFont);
-            c.drawText("Puntos: " + score, 30, 80, paint);
-            c.drawText("Buhay: " + lives, 30, 140, paint);
+    /**
+     * Draws the current state. Runs on the game thread only.
+     *
+     * @param alpha Fraction of a simulation step elapsed since the last tick().
+     */
+    void render(float alpha) {
+        renderer.render(sim, alpha, stats);
+    }
 
-            long elapsedTime = System.currentTimeMillis() - gameStartTime;
-            long timeRemaining = Math.max(0, gameDuration - elapsedTime);
-            String timeText = String.format("%02d:%02d", (timeRemaining / 60000) % 60, (timeRemaining / 1000) % 60);
+    /**
+     * Runs on the game thread only, after its last frame.
+     */
+    void detachRenderer() {
+        renderer.detach();
+    }
 
-            Paint timerPaint = new Paint();
-            timerPaint.setTypeface(customFont);
-            timerPaint.setColor(Color.YELLOW);
-            timerPaint.setTextSize(100);
-            timerPaint.setTextAlign(Paint.Align.CENTER);
-            c.drawText(timeText, getWidth() / 2, 80, timerPaint);
+    /**
+     * Keeps the recording of the round that just ended as the app's last replay. Runs on the
+     * game thread only, as it exits.
+     */
+    private void saveReplay() {
+        File file = new File(getContext().getFilesDir(), REPLAY_FILE);
+        try (OutputStream out = new FileOutputStream(file)) {
+            recorder.writeTo(out);
+        } catch (IOException e) {
+            Log.w("GamePanel", "Could not save the replay", e);
+        }
+    }
 
-            holder.unlockCanvasAndPost(c);
+    /**
+     * Writes the recorded frame timings to the app's external files directory. Runs on the game
+     * thread only.
+     */
+    private void dumpStats() {
+        File dir = getContext().getExternalFilesDir(null);
+        if (dir == null) {
+            return;
+        }
+        File file = new File(dir, "frame_stats_" + System.currentTimeMillis() + ".csv");
+        try (Writer out = new FileWriter(file)) {
+            stats.writeCsv(out);
+            Log.d("GamePanel", "Frame stats written to " + file);
+        } catch (IOException e) {
+            Log.w("GamePanel", "Could not write frame stats", e);
         }
     }
 
     @Override
     public boolean onTouchEvent(MotionEvent event) {
-        if (event.getAction() == MotionEvent.ACTION_DOWN ||
-                event.getAction() == MotionEvent.ACTION_MOVE) {
-            PointF touchPos = new PointF(event.getX(), event.getY());
-            Iterator<rndSqr> iterator = squares.iterator();
-            while (iterator.hasNext()) {
-                rndSqr square = iterator.next();
-                if (square.contains(touchPos)) {
-                    if (square.isPenalty()) {
-                        lives--;
-                        SoundManager.getInstance(getContext()).playPestTap();
-                    } else {
-                        score += square.getPoints();
-                        if (square.getPoints() == 5) {
-                            SoundManager.getInstance(getContext()).playFlowerTap();
-                        } else {
-                            SoundManager.getInstance(getContext()).playFruitTap();
-                        }
+        // The game thread owns the simulation; hand the samples over instead of touching it here.
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_POINTER_DOWN:
+                if (event.getPointerCount() == 3) {
+                    showStats = !showStats;
+                    renderer.setShowStats(showStats);
+                    break;
+                }
+                // Fall through: a further finger starts its own stroke.
+            case MotionEvent.ACTION_DOWN: {
+                int index = event.getActionIndex();
+                touches.offer(event.getPointerId(index), event.getX(index), event.getY(index), true);
+                break;
+            }
+            case MotionEvent.ACTION_MOVE: {
+                // A MOVE batches every sample since the last one; queue them all, oldest first, so
+                // a fast swipe hits everything along its path.
+                int pointers = event.getPointerCount();
+                for (int h = 0, history = event.getHistorySize(); h < history; h++) {
+                    for (int p = 0; p < pointers; p++) {
+                        touches.offer(event.getPointerId(p),
+                                event.getHistoricalX(p, h), event.getHistoricalY(p, h), false);
                     }
-                    iterator.remove();
                 }
+                for (int p = 0; p < pointers; p++) {
+                    touches.offer(event.getPointerId(p), event.getX(p), event.getY(p), false);
+                }
+                break;
             }
         }
         return true;
@@ -234,64 +401,92 @@ public class GamePanel extends SurfaceView implements SurfaceHolder.Callback {
 
     @Override
     public void surfaceCreated(@NonNull SurfaceHolder holder) {
-        running = true;
-        gameStartTime = System.currentTimeMillis();
-
-        Bitmap originalBackground = BitmapFactory.decodeResource(getResources(), R.drawable.gamebackground);
-        int screenWidth = getWidth();
-        int screenHeight = getHeight();
-        float scaleX = (float) screenWidth / originalBackground.getWidth();
-        float scaleY = (float) screenHeight / originalBackground.getHeight();
-        float scale = Math.max(scaleX, scaleY);
-        int newWidth = Math.round(originalBackground.getWidth() * scale);
-        int newHeight = Math.round(originalBackground.getHeight() * scale);
-        Bitmap scaledBackground = Bitmap.createScaledBitmap(originalBackground, newWidth, newHeight, true);
-        int xOffset = (newWidth - screenWidth) / 2;
-        int yOffset = (newHeight - screenHeight) / 2;
-        background = Bitmap.createBitmap(scaledBackground, xOffset, yOffset, screenWidth, screenHeight);
-
-        SoundManager.getInstance(getContext()).startBgm();
-        startWaves();
-        render();
+        surfaceWidth = getWidth();
+        surfaceHeight = getHeight();
+        renderer.setSize(surfaceWidth, surfaceHeight);
+        renderer.invalidate();
+
+        surfaceReady = true;
+
+        touches.clear();
+        touchBatch.reset();
+        if (sim.isOver() || paused) {
+            // Came back to the game-over screen, or not running yet; just redraw the current
+            // state.
+            startGameThread(false);
+            return;
+        }
+        SoundManager.getInstance(getContext()).startBgm(SoundManager.GAME_MUSIC);
+        startGameThread(true);
+    }
+
+    /**
+     * @param simulate false to only draw the current state once.
+     */
+    private void startGameThread(boolean simulate) {
+        Display display = getDisplay();
+        float refreshRate = display != null ? display.getRefreshRate() : 60f;
+        if (refreshRate < 30f) {
+            refreshRate = 60f;
+        }
+        if (quality == null) {
+            quality = new QualityScheduler((long) (1_000_000_000L / refreshRate));
+        }
+        PowerManager power = (PowerManager) getContext().getSystemService(Context.POWER_SERVICE);
+        boolean powerSave = power != null && power.isPowerSaveMode();
+        quality.setPowerSave(powerSave);
+        // One step per display frame where the display allows it, so every frame shows a fresh
+        // step. No game thread is running, so the simulation is safe to touch here.
+        int tickRate = Math.round(refreshRate);
+        sim.setTickRate(powerSave ? Math.min(tickRate, QualityScheduler.POWER_SAVE_FPS) : tickRate);
+        gameThread = new GameThread(this, quality, stats, simulate);
+        gameThread.start();
     }
 
     @Override
     public void surfaceChanged(@NonNull SurfaceHolder holder, int format, int width, int height) {
-        // No additional handling required.
+        // Only the game thread touches the simulation; it picks the new size up on its next tick.
+        surfaceWidth = width;
+        surfaceHeight = height;
+        renderer.setSize(width, height);
     }
 
     @Override
     public void surfaceDestroyed(@NonNull SurfaceHolder holder) {
-        running = false;
-        handler.removeCallbacksAndMessages(null);
+        surfaceReady = false;
+        if (gameThread != null) {
+            gameThread.stopAndJoin();
+            gameThread = null;
+        }
+        renderer.release();
     }
 
     /**
-     * Displays a game-over overlay by inflating the game_over.xml layout.
-     * This overlay shows the final score, high score, and two buttons: "Play Again" and "Main Menu".
+     * Displays a game-over overlay on top of the panel, inflating the game_over.xml layout the
+     * first time. This overlay shows the final score, high score, and two buttons: "Play Again",
+     * which resets this panel for another round, and "Main Menu".
+     *
+     * @param run Summary of the game that just ended; it is added to the run history.
      */
-    private void showGameOverScreen() {
+    private void showGameOverScreen(RunRecord run) {
         post(new Runnable() {
             @Override
             public void run() {
+                int score = run.getScore();
                 SoundManager.getInstance(getContext()).pauseBgm();
                 SoundManager.getInstance(getContext()).playGameOverSfx();
 
-                // Update high score using HighScoreManager.
+                // Record the run; the history is written in the background.
                 HighScoreManager highScoreManager = HighScoreManager.getInstance(getContext());
+                highScoreManager.recordRun(run);
                 int currentHighScore = highScoreManager.getHighScore();
-                if (score > currentHighScore) {
-                    highScoreManager.updateHighScore(score);
-                    currentHighScore = score;
-                }
 
                 if (getContext() instanceof GameStart) {
                     GameStart activity = (GameStart) getContext();
                     FrameLayout gameContainer = activity.findViewById(R.id.gameContainer);
-                    gameContainer.removeAllViews();
-
-                    LayoutInflater inflater = LayoutInflater.from(getContext());
-                    View gameOverView = inflater.inflate(R.layout.game_over, null);
+                    if (gameOverView == null) {
+                        gameOverView = inflateGameOverView(activity, gameContainer);
+                    }
 
                     TextView scoreText = gameOverView.findViewById(R.id.finalScoreTextView);
                     scoreText.setText("Puntos: " + score);
@@ -299,28 +494,42 @@ public class GamePanel extends SurfaceView implements SurfaceHolder.Callback {
                     TextView highScoreText = gameOverView.findViewById(R.id.highScoreTextView);
                     highScoreText.setText("Rurok ng Puntos: " + currentHighScore);
 
-                    ImageButton playAgainButton = gameOverView.findViewById(R.id.playAgainButton);
-                    ImageButton homeButton = gameOverView.findViewById(R.id.homeButton);
-
-                    playAgainButton.setOnClickListener(v -> {
-                        SoundManager.getInstance(getContext()).playPopSound();
-                        v.startAnimation(AnimationUtils.loadAnimation(getContext(), R.anim.button_pop));
-                        new Handler().postDelayed(() -> activity.startGame(), 100);
-                    });
-
-                    homeButton.setOnClickListener(v -> {
-                        SoundManager.getInstance(getContext()).playPopSound();
-                        v.startAnimation(AnimationUtils.loadAnimation(getContext(), R.anim.button_pop));
-                        new Handler().postDelayed(() -> {
-                            Intent intent = new Intent(activity, MainUI.class);
-                            activity.startActivity(intent);
-                            activity.finish();
-                        }, 100);
-                    });
-
-                    gameContainer.addView(gameOverView);
+                    if (gameOverView.getParent() == null) {
+                        gameContainer.addView(gameOverView);
+                    }
                 }
             }
         });
     }
+
+    private View inflateGameOverView(GameStart activity, FrameLayout gameContainer) {
+        LayoutInflater inflater = LayoutInflater.from(getContext());
+        View view = inflater.inflate(R.layout.game_over, null);
+
+        ImageButton playAgainButton = view.findViewById(R.id.playAgainButton);
+        ImageButton homeButton = view.findViewById(R.id.homeButton);
+
+        playAgainButton.setOnClickListener(v -> {
+            SoundManager.getInstance(getContext()).playPopSound();
+            v.startAnimation(AnimationUtils.loadAnimation(getContext(), R.anim.button_pop));
+            new Handler().postDelayed(() -> {
+                // Ignore a second tap that lands before the overlay is gone.
+                if (view.getParent() != null) {
+                    gameContainer.removeView(view);
+                    reset();
+                }
+            }, 100);
+        });
+
+        homeButton.setOnClickListener(v -> {
+            SoundManager.getInstance(getContext()).playPopSound();
+            v.startAnimation(AnimationUtils.loadAnimation(getContext(), R.anim.button_pop));
+            new Handler().postDelayed(() -> {
+                Intent intent = new Intent(activity, MainUI.class);
+                activity.startActivity(intent);
+                activity.finish();
+            }, 100);
+        });
+        return view;
+    }
 }
@@ -0,0 +1,78 @@
+package com.example.minigame;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A compact binary copy of a game in progress, to continue it exactly where it was after the
+ * process has been killed in the background: the simulation's counters, wave parameters,
+ * simulated time and random state, every object, and where the round's replay is.
+ *
+ * Format: "SNAP", version, the simulation's scalar state, the object count and each object
+ * field as one array, then the replay's position, length and checksum. Arrays are stored in
+ * native byte order so both capture and restore are bulk copies; a snapshot is only ever read
+ * back on the device that wrote it. A game of a few dozen objects takes about 2 KB and
+ * restores in microseconds, so it fits an activity's saved state.
+ *
+ * The replay itself grows with every touch and can reach hundreds of KB, too much for the
+ * saved state, so the caller saves the recording separately, e.g. to a file, and hands it
+ * back to restore(), which checks it against the checksum.
+ *
+ * Neither method may run while a game thread is using the simulation.
+ */
+public final class GameSnapshot {
+
+    private static final int MAGIC = 0x534E4150; // "SNAP"
+    // 2: the replay is kept outside the snapshot.
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 8;
+
+    private GameSnapshot() {
+    }
+
+    /**
+     * Save the recording so far (recorder.toByteArray()) alongside; restore() needs it.
+     */
+    public static byte[] capture(Simulation sim, ReplayRecorder recorder) {
+        int size = HEADER_BYTES + Simulation.STATE_BYTES
+                + EntityStore.stateBytes(sim.getSquares().count) + ReplayRecorder.STATE_BYTES;
+        ByteBuffer out = ByteBuffer.allocate(size).order(ByteOrder.nativeOrder());
+        out.putInt(MAGIC);
+        out.putInt(VERSION);
+        sim.saveState(out);
+        recorder.saveState(out);
+        return out.array();
+    }
+
+    /**
+     * Puts sim and recorder back into the captured state. Listener, stats and bounds are kept.
+     *
+     * @param replay The recording saved when data was captured.
+     * @throws IOException if data is not a snapshot this version can read, or replay is not
+     *                     the one captured with it; sim and recorder are then unusable until
+     *                     reset.
+     */
+    public static void restore(byte[] data, InputStream replay, Simulation sim,
+                               ReplayRecorder recorder) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(data).order(ByteOrder.nativeOrder());
+        try {
+            if (in.getInt() != MAGIC) {
+                throw new IOException("Not a game snapshot");
+            }
+            int version = in.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version);
+            }
+            sim.restoreState(in);
+            recorder.restoreState(in, replay);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated game snapshot", e);
+        }
+        if (in.hasRemaining()) {
+            throw new IOException("Trailing bytes after game snapshot");
+        }
+    }
+}
@@ -13,9 +13,21 @@ import android.widget.TextView;
 import androidx.appcompat.app.AppCompatActivity;
 
 public class GameStart extends AppCompatActivity {
+    // Saved-state key for a game in progress; see GamePanel.saveState().
+    private static final String KEY_SNAPSHOT = "game_snapshot";
+
     private TextView countdownText;
     private FrameLayout gameContainer;
 
+    // Assets are prepared while the countdown runs; a game only starts once they are ready.
+    private AssetPreloader preloader;
+    private GameAssets assets;
+    private boolean startWhenLoaded = false;
+    private GamePanel gamePanel;
+    // A game to continue: captured in onPause(), or restored from the saved state after the
+    // process was killed.
+    private byte[] snapshot;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -34,10 +46,45 @@ public class GameStart extends AppCompatActivity {
 
         setContentView(R.layout.countdown); // Your XML layout
 
+        if (savedInstanceState != null) {
+            snapshot = savedInstanceState.getByteArray(KEY_SNAPSHOT);
+        }
+
         countdownText = findViewById(R.id.countdownTextView);
         gameContainer = findViewById(R.id.gameContainer); // This FrameLayout will host the game view.
 
-        startCountdown();
+        // Start loading the run history now so it is ready by game over.
+        HighScoreManager.getInstance(this);
+
+        // The game fills the container, so prepare the background for its size once laid out.
+        preloader = new AssetPreloader(this);
+        gameContainer.post(() -> preloader.start(gameContainer.getWidth(), gameContainer.getHeight(),
+                new AssetPreloader.Listener() {
+                    @Override
+                    public void onProgress(int stagesDone, int stages) {
+                        if (startWhenLoaded) {
+                            // Only seen if loading outlasts the countdown.
+                            countdownText.setText(stagesDone * 100 / stages + "%");
+                        }
+                    }
+
+                    @Override
+                    public void onReady(GameAssets loaded) {
+                        assets = loaded;
+                        if (startWhenLoaded) {
+                            startWhenLoaded = false;
+                            countdownText.setText("");
+                            startGame();
+                        }
+                    }
+                }));
+
+        if (snapshot != null) {
+            // Interrupted mid-game; carry on as soon as the assets are back, without a countdown.
+            startGame();
+        } else {
+            startCountdown();
+        }
     }
 
     public void startCountdown() {
@@ -71,6 +118,59 @@ public class GameStart extends AppCompatActivity {
         }.start();
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        preloader.cancel();
+        // Any game surface, and with it the game thread, is gone by now.
+        if (assets != null) {
+            assets.recycle();
+            assets = null;
+        }
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        // The game loop stops completely while the activity is not in front.
+        if (gamePanel != null) {
+            gamePanel.pause();
+            snapshot = gamePanel.saveState();
+        } else {
+            // Still counting down; the panel pauses the music itself once it exists.
+            SoundManager.getInstance(this).pauseBgm();
+        }
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        if (gamePanel != null) {
+            // Still in memory; the snapshot is only needed if the process dies.
+            snapshot = null;
+            gamePanel.resume();
+        } else {
+            // Coming from the menu this cancels its pause fade, so the music carries on through
+            // the countdown.
+            SoundManager.getInstance(this).startBgm(SoundManager.GAME_MUSIC);
+        }
+    }
+
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        if (snapshot != null) {
+            outState.putByteArray(KEY_SNAPSHOT, snapshot);
+        }
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        // Don't leave a just-finished run waiting for the write batch while in the background.
+        HighScoreManager.getInstance(this).flush();
+    }
+
     private void animateScale() {
         ScaleAnimation scaleAnimation = new ScaleAnimation(
                 0.7f, 1.3f,  // X: from 70% to 130%
@@ -83,11 +183,22 @@ public class GameStart extends AppCompatActivity {
         countdownText.startAnimation(scaleAnimation);
     }
 
-    // Made public so that GamePanel can call it when the player taps "Play Again".
+    // Adds the game once the countdown is over, continuing any saved one; "Play Again" resets
+    // the same GamePanel instead.
     public void startGame() {
         runOnUiThread(() -> {
+            if (assets == null) {
+                // Still preloading; onReady starts the game.
+                startWhenLoaded = true;
+                return;
+            }
             gameContainer.removeAllViews(); // Remove any existing views (countdown or previous game)
-            gameContainer.addView(new GamePanel(this)); // Add a new GamePanel to start the game
+            gamePanel = new GamePanel(this, assets);
+            if (snapshot != null) {
+                gamePanel.restoreState(snapshot);
+                snapshot = null;
+            }
+            gameContainer.addView(gamePanel); // Add the GamePanel to start the game
         });
     }
 }
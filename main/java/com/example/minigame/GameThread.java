@@ -0,0 +1,127 @@
+package com.example.minigame;
+
+/**
+ * Dedicated game-loop thread. Advances the simulation in fixed steps and renders once per
+ * frame, passing the leftover fraction of a step so sprites can be interpolated. The frame
+ * rate and quality follow a {@link QualityScheduler}, fed with each frame's work time.
+ *
+ * The panel's renderer is bound to this thread for as long as it runs. The thread exits at
+ * game over and whenever the game is paused or hidden, so nothing runs while nothing is seen.
+ */
+public class GameThread extends Thread {
+
+    // Never try to catch up more than this many steps after a long stall (e.g. a GC or the
+    // app coming back from the background); the game just slows down instead.
+    private static final int MAX_STEPS_PER_FRAME = 5;
+
+    private final GamePanel panel;
+    private final QualityScheduler quality;
+    private final FrameStats stats;
+    private final boolean simulate;
+    private volatile boolean running = true;
+
+    /**
+     * @param panel    The panel whose tick() and render() are driven by this thread.
+     * @param quality  Paces rendering and picks the quality level; used by this thread only
+     *                 while it runs.
+     * @param stats    Receives the interval of every rendered frame.
+     * @param simulate false to draw the current state once and exit, e.g. behind the
+     *                 game-over screen.
+     */
+    public GameThread(GamePanel panel, QualityScheduler quality, FrameStats stats,
+                      boolean simulate) {
+        super("GameThread");
+        this.panel = panel;
+        this.quality = quality;
+        this.stats = stats;
+        this.simulate = simulate;
+    }
+
+    @Override
+    public void run() {
+        panel.attachRenderer();
+        panel.applyQuality(quality);
+        try {
+            if (simulate) {
+                loop();
+            } else {
+                panel.render(0);
+            }
+        } finally {
+            panel.detachRenderer();
+        }
+    }
+
+    private void loop() {
+        // Simulation rate, fixed for the lifetime of this thread.
+        long stepNanos = panel.getStepNanos();
+        long previous = System.nanoTime();
+        long lastFrameStart = previous;
+        long accumulator = 0;
+
+        while (running) {
+            long frameStart = System.nanoTime();
+            accumulator += frameStart - previous;
+            previous = frameStart;
+
+            int steps = 0;
+            while (accumulator >= stepNanos && running) {
+                if (steps == MAX_STEPS_PER_FRAME) {
+                    accumulator = 0;
+                    break;
+                }
+                panel.tick();
+                accumulator -= stepNanos;
+                steps++;
+            }
+            if (!running) {
+                break;
+            }
+
+            panel.render((float) accumulator / stepNanos);
+            long frameNanos = quality.getFrameNanos();
+            stats.endFrame(frameStart - lastFrameStart, frameNanos);
+            lastFrameStart = frameStart;
+            if (quality.onFrame(System.nanoTime() - frameStart)) {
+                panel.applyQuality(quality);
+                frameNanos = quality.getFrameNanos();
+            }
+
+            // Posting the frame already blocks once the surface's buffers are full; sleeping
+            // out the rest of the display frame keeps us from spinning when it does not.
+            long remaining = frameNanos - (System.nanoTime() - frameStart);
+            if (remaining > 1_000_000L) {
+                try {
+                    Thread.sleep(remaining / 1_000_000L, (int) (remaining % 1_000_000L));
+                } catch (InterruptedException e) {
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Asks the loop to finish its current frame and exit. Safe to call from any thread,
+     * including the game thread itself.
+     */
+    public void requestStop() {
+        running = false;
+    }
+
+    /**
+     * Stops the loop and waits for it to exit, so the surface can be released safely.
+     */
+    public void stopAndJoin() {
+        requestStop();
+        interrupt();
+        boolean retry = true;
+        while (retry) {
+            try {
+                join();
+                retry = false;
+            } catch (InterruptedException e) {
+                // Keep waiting; the surface must not be used after surfaceDestroyed returns.
+            }
+        }
+    }
+}
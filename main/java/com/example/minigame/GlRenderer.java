@@ -0,0 +1,384 @@
+package com.example.minigame;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Rect;
+import android.opengl.EGL14;
+import android.opengl.EGLConfig;
+import android.opengl.EGLContext;
+import android.opengl.EGLDisplay;
+import android.opengl.EGLSurface;
+import android.opengl.GLES20;
+import android.opengl.GLUtils;
+import android.util.Log;
+import android.view.SurfaceHolder;
+
+/**
+ * OpenGL ES 2.0 renderer. The sprite atlas is uploaded once as a texture and every object is
+ * drawn with a single batched draw call per frame; the background and the HUD are one quad
+ * each. The HUD is still drawn with Canvas, into a bitmap that is only re-uploaded when its
+ * text changes.
+ *
+ * Runs its own EGL context on the game thread rather than a GLSurfaceView, so the fixed-step
+ * loop and its interpolation stay exactly as they are for the Canvas path. The context
+ * survives detach() and is reused by the next game thread; release() destroys it.
+ */
+public class GlRenderer implements Renderer {
+
+    private static final String TAG = "GlRenderer";
+    private static final int EGL_CONTEXT_LOST = 0x300E;
+
+    // Screen pixels in, y down; textures are premultiplied like every Android bitmap.
+    private static final String VERTEX_SHADER =
+            "uniform vec2 uScale;\n"
+                    + "attribute vec2 aPosition;\n"
+                    + "attribute vec2 aTexCoord;\n"
+                    + "varying vec2 vTexCoord;\n"
+                    + "void main() {\n"
+                    + "    vec2 clip = aPosition * uScale;\n"
+                    + "    gl_Position = vec4(clip.x - 1.0, 1.0 - clip.y, 0.0, 1.0);\n"
+                    + "    vTexCoord = aTexCoord;\n"
+                    + "}\n";
+    private static final String FRAGMENT_SHADER =
+            "precision mediump float;\n"
+                    + "uniform sampler2D uTexture;\n"
+                    + "varying vec2 vTexCoord;\n"
+                    + "void main() {\n"
+                    + "    gl_FragColor = texture2D(uTexture, vTexCoord);\n"
+                    + "}\n";
+
+    // Indices into textures.
+    private static final int ATLAS = 0;
+    private static final int BACKGROUND = 1;
+    private static final int HUD = 2;
+
+    private final GameAssets assets;
+    private final SpriteAtlas sprites;
+    private final HudLayer hud;
+    private final SpriteFrame frame = new SpriteFrame();
+    private final SpriteBatch batch = new SpriteBatch(64);
+
+    private EGLDisplay display;
+    private EGLConfig config;
+    private EGLContext context;
+    private EGLSurface surface;
+    private boolean contextLost = false;
+
+    // Zero until created in the current context.
+    private int program = 0;
+    private int positionAttribute;
+    private int texCoordAttribute;
+    private int scaleUniform;
+    private final int[] textures = new int[3];
+    private float atlasScaleU;
+    private float atlasScaleV;
+
+    private volatile int width;
+    private volatile int height;
+    private volatile boolean showStats;
+    private volatile boolean invalidated = true;
+    // What the viewport, background and HUD textures were last set up for.
+    private int viewportWidth = -1;
+    private int viewportHeight = -1;
+    private boolean statsShown;
+    private boolean rotateSprites = true;
+
+    private Bitmap hudBitmap;
+    private Canvas hudCanvas;
+    private final Rect hudDirty = new Rect();
+
+    public GlRenderer(GameAssets assets) {
+        this.assets = assets;
+        sprites = assets.getSprites();
+        hud = new HudLayer(assets.getFont());
+    }
+
+    @Override
+    public boolean attach(SurfaceHolder holder) {
+        if (context == null && !createContext()) {
+            return false;
+        }
+        surface = EGL14.eglCreateWindowSurface(display, config, holder.getSurface(),
+                new int[]{EGL14.EGL_NONE}, 0);
+        if (surface == null || surface == EGL14.EGL_NO_SURFACE
+                || !EGL14.eglMakeCurrent(display, surface, surface, context)) {
+            Log.w(TAG, "Could not use the surface: EGL error " + EGL14.eglGetError());
+            detach();
+            release();
+            return false;
+        }
+        if (program == 0 && !createProgram()) {
+            detach();
+            release();
+            return false;
+        }
+        viewportWidth = -1;
+        viewportHeight = -1;
+        invalidated = true;
+        return true;
+    }
+
+    @Override
+    public void setSize(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    @Override
+    public void setShowStats(boolean show) {
+        showStats = show;
+    }
+
+    @Override
+    public void setQuality(QualityScheduler.Level level) {
+        rotateSprites = level.rotateSprites;
+        hud.setRefreshFrames(level.hudRefreshFrames);
+    }
+
+    @Override
+    public void invalidate() {
+        invalidated = true;
+    }
+
+    @Override
+    public void render(Simulation sim, float alpha, FrameStats stats) {
+        long drawStart = System.nanoTime();
+        int surfaceWidth = width;
+        int surfaceHeight = height;
+        if (surfaceWidth <= 0 || surfaceHeight <= 0) {
+            return;
+        }
+        if (surfaceWidth != viewportWidth || surfaceHeight != viewportHeight) {
+            applySize(surfaceWidth, surfaceHeight);
+        }
+
+        EntityStore squares = sim.getSquares();
+        int n = frame.interpolate(squares, alpha);
+        stats.setEntityCount(n);
+
+        boolean show = showStats;
+        boolean all = invalidated || show != statsShown;
+        invalidated = false;
+        // The layer is re-uploaded whole, so where it changed does not matter.
+        hudDirty.setEmpty();
+        if (hud.update(sim, stats, show, surfaceWidth, all, hudDirty)) {
+            hudBitmap.eraseColor(Color.TRANSPARENT);
+            hud.draw(hudCanvas, show, surfaceWidth);
+            GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textures[HUD]);
+            GLUtils.texSubImage2D(GLES20.GL_TEXTURE_2D, 0, 0, 0, hudBitmap);
+        }
+        statsShown = show;
+
+        // The background is opaque and covers the surface, so there is nothing to clear.
+        GLES20.glDisable(GLES20.GL_BLEND);
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textures[BACKGROUND]);
+        batch.begin();
+        batch.addRect(0, 0, surfaceWidth, surfaceHeight, 0, 0, 1, 1);
+        batch.draw(positionAttribute, texCoordAttribute);
+
+        GLES20.glEnable(GLES20.GL_BLEND);
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textures[ATLAS]);
+        batch.begin();
+        for (int i = 0; i < n; i++) {
+            Rect src = sprites.sprite(squares.sprite[i]).src;
+            batch.add(frame.x[i], frame.y[i], squares.radius[i],
+                    rotateSprites ? frame.angle[i] : 0,
+                    src.left * atlasScaleU, src.top * atlasScaleV,
+                    src.right * atlasScaleU, src.bottom * atlasScaleV);
+        }
+        batch.draw(positionAttribute, texCoordAttribute);
+
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textures[HUD]);
+        batch.begin();
+        batch.addRect(0, 0, hudBitmap.getWidth(), hudBitmap.getHeight(), 0, 0, 1, 1);
+        batch.draw(positionAttribute, texCoordAttribute);
+
+        long postStart = System.nanoTime();
+        if (!EGL14.eglSwapBuffers(display, surface)) {
+            int error = EGL14.eglGetError();
+            if (error == EGL_CONTEXT_LOST) {
+                // Happens after the device sleeps on some GPUs; detach() starts over.
+                Log.w(TAG, "EGL context lost");
+                contextLost = true;
+            }
+        }
+        stats.add(FrameStats.DRAW, postStart - drawStart);
+        stats.add(FrameStats.POST, System.nanoTime() - postStart);
+    }
+
+    @Override
+    public void detach() {
+        if (display == null) {
+            return;
+        }
+        EGL14.eglMakeCurrent(display, EGL14.EGL_NO_SURFACE, EGL14.EGL_NO_SURFACE,
+                EGL14.EGL_NO_CONTEXT);
+        if (surface != null && surface != EGL14.EGL_NO_SURFACE) {
+            EGL14.eglDestroySurface(display, surface);
+        }
+        surface = null;
+        if (contextLost) {
+            release();
+        }
+        EGL14.eglReleaseThread();
+    }
+
+    @Override
+    public void release() {
+        if (display == null) {
+            return;
+        }
+        // The program and textures go with the context.
+        if (context != null && context != EGL14.EGL_NO_CONTEXT) {
+            EGL14.eglDestroyContext(display, context);
+        }
+        EGL14.eglTerminate(display);
+        display = null;
+        config = null;
+        context = null;
+        contextLost = false;
+        program = 0;
+        viewportWidth = -1;
+        viewportHeight = -1;
+        if (hudBitmap != null) {
+            hudBitmap.recycle();
+            hudBitmap = null;
+            hudCanvas = null;
+        }
+    }
+
+    private boolean createContext() {
+        display = EGL14.eglGetDisplay(EGL14.EGL_DEFAULT_DISPLAY);
+        int[] version = new int[2];
+        if (display == null || display == EGL14.EGL_NO_DISPLAY
+                || !EGL14.eglInitialize(display, version, 0, version, 1)) {
+            Log.w(TAG, "No EGL display");
+            display = null;
+            return false;
+        }
+        int[] attributes = {
+                EGL14.EGL_RED_SIZE, 8,
+                EGL14.EGL_GREEN_SIZE, 8,
+                EGL14.EGL_BLUE_SIZE, 8,
+                EGL14.EGL_RENDERABLE_TYPE, EGL14.EGL_OPENGL_ES2_BIT,
+                EGL14.EGL_SURFACE_TYPE, EGL14.EGL_WINDOW_BIT,
+                EGL14.EGL_NONE
+        };
+        EGLConfig[] configs = new EGLConfig[1];
+        int[] found = new int[1];
+        if (!EGL14.eglChooseConfig(display, attributes, 0, configs, 0, 1, found, 0)
+                || found[0] == 0) {
+            Log.w(TAG, "No OpenGL ES 2.0 config");
+            release();
+            return false;
+        }
+        config = configs[0];
+        context = EGL14.eglCreateContext(display, config, EGL14.EGL_NO_CONTEXT,
+                new int[]{EGL14.EGL_CONTEXT_CLIENT_VERSION, 2, EGL14.EGL_NONE}, 0);
+        if (context == null || context == EGL14.EGL_NO_CONTEXT) {
+            Log.w(TAG, "Could not create an OpenGL ES 2.0 context: EGL error "
+                    + EGL14.eglGetError());
+            context = null;
+            release();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Compiles the shaders and uploads the atlas. Needs the context to be current.
+     */
+    private boolean createProgram() {
+        int vertexShader = compile(GLES20.GL_VERTEX_SHADER, VERTEX_SHADER);
+        int fragmentShader = compile(GLES20.GL_FRAGMENT_SHADER, FRAGMENT_SHADER);
+        if (vertexShader == 0 || fragmentShader == 0) {
+            return false;
+        }
+        int created = GLES20.glCreateProgram();
+        GLES20.glAttachShader(created, vertexShader);
+        GLES20.glAttachShader(created, fragmentShader);
+        GLES20.glLinkProgram(created);
+        GLES20.glDeleteShader(vertexShader);
+        GLES20.glDeleteShader(fragmentShader);
+        int[] status = new int[1];
+        GLES20.glGetProgramiv(created, GLES20.GL_LINK_STATUS, status, 0);
+        if (status[0] == 0) {
+            Log.w(TAG, "Could not link the program: " + GLES20.glGetProgramInfoLog(created));
+            GLES20.glDeleteProgram(created);
+            return false;
+        }
+
+        GLES20.glUseProgram(created);
+        positionAttribute = GLES20.glGetAttribLocation(created, "aPosition");
+        texCoordAttribute = GLES20.glGetAttribLocation(created, "aTexCoord");
+        scaleUniform = GLES20.glGetUniformLocation(created, "uScale");
+        GLES20.glUniform1i(GLES20.glGetUniformLocation(created, "uTexture"), 0);
+        GLES20.glEnableVertexAttribArray(positionAttribute);
+        GLES20.glEnableVertexAttribArray(texCoordAttribute);
+        GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
+        GLES20.glBlendFunc(GLES20.GL_ONE, GLES20.GL_ONE_MINUS_SRC_ALPHA);
+        GLES20.glDisable(GLES20.GL_DEPTH_TEST);
+
+        GLES20.glGenTextures(textures.length, textures, 0);
+        int target = GLES20.GL_TEXTURE_2D;
+        for (int texture : textures) {
+            GLES20.glBindTexture(target, texture);
+            GLES20.glTexParameteri(target, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_LINEAR);
+            GLES20.glTexParameteri(target, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR);
+            // Non-power-of-two textures need clamping in ES 2.0.
+            GLES20.glTexParameteri(target, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
+            GLES20.glTexParameteri(target, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
+        }
+        Bitmap atlas = sprites.getBitmap();
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textures[ATLAS]);
+        GLUtils.texImage2D(GLES20.GL_TEXTURE_2D, 0, atlas, 0);
+        atlasScaleU = 1f / atlas.getWidth();
+        atlasScaleV = 1f / atlas.getHeight();
+        program = created;
+        return true;
+    }
+
+    private static int compile(int type, String source) {
+        int shader = GLES20.glCreateShader(type);
+        GLES20.glShaderSource(shader, source);
+        GLES20.glCompileShader(shader);
+        int[] status = new int[1];
+        GLES20.glGetShaderiv(shader, GLES20.GL_COMPILE_STATUS, status, 0);
+        if (status[0] == 0) {
+            Log.w(TAG, "Could not compile a shader: " + GLES20.glGetShaderInfoLog(shader));
+            GLES20.glDeleteShader(shader);
+            return 0;
+        }
+        return shader;
+    }
+
+    /**
+     * Sets up the viewport, the background texture and the HUD layer for a new surface size.
+     */
+    private void applySize(int surfaceWidth, int surfaceHeight) {
+        GLES20.glViewport(0, 0, surfaceWidth, surfaceHeight);
+        GLES20.glUniform2f(scaleUniform, 2f / surfaceWidth, 2f / surfaceHeight);
+
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textures[BACKGROUND]);
+        GLUtils.texImage2D(GLES20.GL_TEXTURE_2D, 0,
+                assets.getBackground(surfaceWidth, surfaceHeight), 0);
+
+        // The HUD only covers the top of the screen, so its layer does too.
+        int hudHeight = Math.min(hud.getHeight(), surfaceHeight);
+        if (hudBitmap == null || hudBitmap.getWidth() != surfaceWidth
+                || hudBitmap.getHeight() != hudHeight) {
+            if (hudBitmap != null) {
+                hudBitmap.recycle();
+            }
+            hudBitmap = Bitmap.createBitmap(surfaceWidth, hudHeight, Bitmap.Config.ARGB_8888);
+            hudCanvas = new Canvas(hudBitmap);
+        }
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textures[HUD]);
+        GLUtils.texImage2D(GLES20.GL_TEXTURE_2D, 0, hudBitmap, 0);
+
+        viewportWidth = surfaceWidth;
+        viewportHeight = surfaceHeight;
+        invalidated = true;
+    }
+}
@@ -3,40 +3,68 @@ package com.example.minigame;
 import android.content.Context;
 import android.content.SharedPreferences;
 
+import java.io.File;
+import java.util.TimeZone;
+
+/**
+ * App-wide access to the high score and the history of past games, backed by a
+ * {@link RunHistory}. Recording a run never blocks on the disk. Thread-safe.
+ */
 public class HighScoreManager {
+    // Before the run history existed only the best score was kept, in SharedPreferences. It is
+    // still read so an old best is not lost, but no longer written.
     private static final String PREFS_NAME = "GameHighScorePrefs";
     private static final String KEY_HIGHSCORE = "highscore";
-    private static HighScoreManager instance;
-    private SharedPreferences prefs;
+    private static final String HISTORY_FILE = "run_history.bin";
+
+    private static volatile HighScoreManager instance;
+    private final SharedPreferences prefs;
+    private final RunHistory history;
 
     private HighScoreManager(Context context) {
-        prefs = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        Context app = context.getApplicationContext();
+        // Both load from disk in the background from here on.
+        prefs = app.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        history = new RunHistory(new File(app.getFilesDir(), HISTORY_FILE), TimeZone.getDefault());
     }
 
     public static HighScoreManager getInstance(Context context) {
-        if (instance == null) {
-            instance = new HighScoreManager(context);
+        HighScoreManager manager = instance;
+        if (manager == null) {
+            synchronized (HighScoreManager.class) {
+                manager = instance;
+                if (manager == null) {
+                    manager = new HighScoreManager(context);
+                    instance = manager;
+                }
+            }
         }
-        return instance;
+        return manager;
     }
 
     public int getHighScore() {
-        return prefs.getInt(KEY_HIGHSCORE, 0);
+        return Math.max(history.getBestScore(), prefs.getInt(KEY_HIGHSCORE, 0));
     }
 
     /**
-     * Updates the high score if newScore is higher.
-     * @param newScore the new score
-     * @return true if the high score was updated
+     * Adds a finished game to the history.
+     * @param run the game
+     * @return true if it set a new high score
      */
-    public boolean updateHighScore(int newScore) {
-        int currentHighScore = getHighScore();
-        if (newScore > currentHighScore) {
-            SharedPreferences.Editor editor = prefs.edit();
-            editor.putInt(KEY_HIGHSCORE, newScore);
-            editor.apply();
-            return true;
-        }
-        return false;
+    public boolean recordRun(RunRecord run) {
+        boolean best = run.getScore() > getHighScore();
+        history.append(run);
+        return best;
+    }
+
+    public RunHistory getHistory() {
+        return history;
+    }
+
+    /**
+     * Writes any recorded runs out now instead of after the batching delay.
+     */
+    public void flush() {
+        history.flush();
     }
 }
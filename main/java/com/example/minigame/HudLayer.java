@@ -0,0 +1,132 @@
+package com.example.minigame;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+
+/**
+ * Score, lives and timer text, and the optional {@link StatsOverlay}, drawn with Canvas by
+ * every renderer. update() refreshes the text once per frame and reports where it changed, so
+ * a renderer only redraws (or re-uploads) the HUD when it has to. Game thread only.
+ */
+class HudLayer {
+
+    private static final int TEXT_LEFT = 30;
+    private static final int SCORE_BASELINE = 80;
+    private static final int LIVES_BASELINE = 140;
+    private static final int STATS_TOP = 170;
+
+    // Created once; update() only refreshes the text buffers.
+    private final Paint hudPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint timerPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    // Of the paints above, which never change after the constructor; getFontMetrics()
+    // allocates.
+    private final Paint.FontMetrics hudMetrics;
+    private final Paint.FontMetrics timerMetrics;
+    private final HudText scoreText = new HudText("Puntos: ", 11);
+    private final HudText livesText = new HudText("Buhay: ", 11);
+    private final HudText timerText = new HudText("", 5);
+    private final StatsOverlay statsOverlay = new StatsOverlay();
+
+    // update() only looks at the simulation every refreshFrames frames.
+    private int refreshFrames = 1;
+    private int framesUntilRefresh = 0;
+
+    // Score, lives and timer text as last drawn.
+    private final Rect scoreBounds = new Rect();
+    private final Rect livesBounds = new Rect();
+    private final Rect timerBounds = new Rect();
+    private final Rect overlayBounds = new Rect();
+
+    HudLayer(Typeface font) {
+        hudPaint.setColor(Color.GREEN);
+        hudPaint.setTextSize(70);
+        hudPaint.setTypeface(font);
+        timerPaint.setTypeface(font);
+        timerPaint.setColor(Color.YELLOW);
+        timerPaint.setTextSize(100);
+        timerPaint.setTextAlign(Paint.Align.CENTER);
+        hudMetrics = hudPaint.getFontMetrics();
+        timerMetrics = timerPaint.getFontMetrics();
+    }
+
+    /**
+     * @param frames Frames between refreshes of the text; the stats overlay, which refreshes
+     *               every so many updates itself, slows down by the same factor.
+     */
+    void setRefreshFrames(int frames) {
+        refreshFrames = Math.max(1, frames);
+    }
+
+    /**
+     * Brings the text up to date with the simulation and counts a frame for the overlay, if a
+     * refresh is due.
+     *
+     * @param all   Treat every line as changed, e.g. on a full redraw.
+     * @param dirty Receives the area, old and new, of every line that changed.
+     * @return true if anything the HUD draws changed.
+     */
+    boolean update(Simulation sim, FrameStats stats, boolean showStats, int width, boolean all,
+                   Rect dirty) {
+        if (!all && --framesUntilRefresh > 0) {
+            return false;
+        }
+        framesUntilRefresh = refreshFrames;
+        boolean changed = false;
+        if (scoreText.setNumber(sim.getScore()) || all) {
+            markText(scoreText, hudPaint, hudMetrics, TEXT_LEFT, SCORE_BASELINE, scoreBounds,
+                    dirty);
+            changed = true;
+        }
+        if (livesText.setNumber(sim.getLives()) || all) {
+            markText(livesText, hudPaint, hudMetrics, TEXT_LEFT, LIVES_BASELINE, livesBounds,
+                    dirty);
+            changed = true;
+        }
+        if (timerText.setTime(sim.getRemainingMillis()) || all) {
+            markText(timerText, timerPaint, timerMetrics, width / 2f, SCORE_BASELINE, timerBounds,
+                    dirty);
+            changed = true;
+        }
+        if (showStats && (statsOverlay.update(stats) || all)) {
+            dirty.union(statsOverlay.getBounds(TEXT_LEFT, STATS_TOP, overlayBounds));
+            changed = true;
+        }
+        return changed;
+    }
+
+    /**
+     * @return How far down the surface the HUD can reach, in pixels.
+     */
+    int getHeight() {
+        return statsOverlay.getBounds(TEXT_LEFT, STATS_TOP, overlayBounds).bottom + 1;
+    }
+
+    void draw(Canvas c, boolean showStats, int width) {
+        c.drawText(scoreText.chars(), 0, scoreText.length(), TEXT_LEFT, SCORE_BASELINE, hudPaint);
+        c.drawText(livesText.chars(), 0, livesText.length(), TEXT_LEFT, LIVES_BASELINE, hudPaint);
+        c.drawText(timerText.chars(), 0, timerText.length(), width / 2f, SCORE_BASELINE,
+                timerPaint);
+        if (showStats) {
+            statsOverlay.draw(c, TEXT_LEFT, STATS_TOP);
+        }
+    }
+
+    /**
+     * Adds the area of a line of text, where it was last drawn and where it is drawn now, to
+     * dirty.
+     *
+     * @param x Anchor of the text, as interpreted by the paint's alignment.
+     */
+    private static void markText(HudText text, Paint paint, Paint.FontMetrics metrics, float x,
+                                 float baseline, Rect bounds, Rect dirty) {
+        dirty.union(bounds);
+        float width = paint.measureText(text.chars(), 0, text.length());
+        float left = paint.getTextAlign() == Paint.Align.CENTER ? x - width / 2 : x;
+        bounds.set((int) Math.floor(left) - 1, (int) Math.floor(baseline + metrics.top) - 1,
+                (int) Math.ceil(left + width) + 1, (int) Math.ceil(baseline + metrics.bottom) + 1);
+        dirty.union(bounds);
+    }
+}
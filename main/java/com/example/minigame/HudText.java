@@ -0,0 +1,86 @@
+package com.example.minigame;
+
+/**
+ * A reusable char buffer for one line of HUD text, e.g. "Puntos: 42" or "01:59".
+ * The digits are only rewritten when the displayed value changes, so drawing it every frame
+ * allocates nothing. Each instance shows either a number or a time, not both.
+ */
+public class HudText {
+
+    private final char[] chars;
+    private final int prefixLength;
+    private int length;
+    private long value = Long.MIN_VALUE;
+
+    /**
+     * @param prefix    Fixed text drawn before the value.
+     * @param maxDigits Longest value that will ever be shown, in characters (including any sign
+     *                  or separator).
+     */
+    public HudText(String prefix, int maxDigits) {
+        prefixLength = prefix.length();
+        chars = new char[prefixLength + maxDigits];
+        prefix.getChars(0, prefixLength, chars, 0);
+        length = prefixLength;
+    }
+
+    /**
+     * Shows an integer after the prefix.
+     *
+     * @return true if the text changed.
+     */
+    public boolean setNumber(int number) {
+        if (number == value) {
+            return false;
+        }
+        value = number;
+        int pos = prefixLength;
+        long remaining = number;
+        if (remaining < 0) {
+            chars[pos++] = '-';
+            remaining = -remaining;
+        }
+        int digits = 1;
+        for (long n = remaining; n >= 10; n /= 10) {
+            digits++;
+        }
+        length = pos + digits;
+        for (int i = length - 1; i >= pos; i--) {
+            chars[i] = (char) ('0' + remaining % 10);
+            remaining /= 10;
+        }
+        return true;
+    }
+
+    /**
+     * Shows a duration as mm:ss after the prefix. Only whole seconds are displayed, so the
+     * buffer is rewritten at most once per second.
+     *
+     * @return true if the text changed.
+     */
+    public boolean setTime(long millis) {
+        long seconds = Math.max(0, millis) / 1000;
+        if (seconds == value) {
+            return false;
+        }
+        value = seconds;
+        int minutes = (int) (seconds / 60) % 60;
+        int secs = (int) (seconds % 60);
+        int pos = prefixLength;
+        chars[pos++] = (char) ('0' + minutes / 10);
+        chars[pos++] = (char) ('0' + minutes % 10);
+        chars[pos++] = ':';
+        chars[pos++] = (char) ('0' + secs / 10);
+        chars[pos++] = (char) ('0' + secs % 10);
+        length = pos;
+        return true;
+    }
+
+    public char[] chars() {
+        return chars;
+    }
+
+    public int length() {
+        return length;
+    }
+}
@@ -7,7 +7,6 @@ import android.util.Log;
 import android.view.LayoutInflater;
 import android.animation.ObjectAnimator;
 import android.app.Dialog;
-import android.media.MediaPlayer;
 import android.os.Bundle;
 import android.view.View;
 import android.view.Window;
@@ -24,7 +23,7 @@ import androidx.appcompat.app.AppCompatActivity;
 
 public class MainUI extends AppCompatActivity {
 
-    private MediaPlayer mediaPlayer, clickSound;
+    private SoundManager sound;
     private ImageView movingImageView, salapangLogo;
     private TextView salapangText, aniText;
     private ImageButton playButton, playButtonMenu, playSettingsButton;
@@ -40,13 +39,8 @@ public class MainUI extends AppCompatActivity {
         setContentView(R.layout.activity_main);
 
 
-        // Initialize MediaPlayer for background music
-        mediaPlayer = MediaPlayer.create(this, R.raw.bgmusic);
-        mediaPlayer.setLooping(true);
-        mediaPlayer.start();
-
-        // Initialize click sound
-        clickSound = MediaPlayer.create(this, R.raw.click_sound);
+        // Music and clicks go through the shared audio engine; the music starts in onResume()
+        sound = SoundManager.getInstance(this);
 
         // Find Views
         movingImageView = findViewById(R.id.moving_image);
@@ -70,9 +64,7 @@ public class MainUI extends AppCompatActivity {
             playButton.startAnimation(popAnimation);
 
             // Play click sound effect
-            if (clickSound != null) {
-                clickSound.start();
-            }
+            sound.playPopSound();
 
             Intent intent = new Intent(MainUI.this, GameStart.class);
             startActivity(intent);
@@ -83,9 +75,7 @@ public class MainUI extends AppCompatActivity {
             Animation popAnimation = AnimationUtils.loadAnimation(this, R.anim.button_pop);
             playButtonMenu.startAnimation(popAnimation);
 
-            if (clickSound != null) {
-                clickSound.start();
-            }
+            sound.playPopSound();
 
             showMenuDialog();
         });
@@ -95,9 +85,7 @@ public class MainUI extends AppCompatActivity {
             Animation popAnimation = AnimationUtils.loadAnimation(this, R.anim.button_pop);
             playSettingsButton.startAnimation(popAnimation);
 
-            if (clickSound != null) {
-                clickSound.start();
-            }
+            sound.playPopSound();
 
             showSettingsDialog();
         });
@@ -125,7 +113,7 @@ public class MainUI extends AppCompatActivity {
 
         menuCloseButton.setOnClickListener(v -> {
             v.startAnimation(AnimationUtils.loadAnimation(this, R.anim.button_pop));
-            if (clickSound != null) clickSound.start();
+            sound.playPopSound();
 
             menuDialog.findViewById(android.R.id.content).startAnimation(AnimationUtils.loadAnimation(this, R.anim.fade_out));
             new android.os.Handler().postDelayed(() -> {
@@ -136,7 +124,7 @@ public class MainUI extends AppCompatActivity {
 
         paanoLaroinButton.setOnClickListener(v -> {
             v.startAnimation(AnimationUtils.loadAnimation(this, R.anim.button_pop));
-            if (clickSound != null) clickSound.start();
+            sound.playPopSound();
 
             menuDialog.findViewById(android.R.id.content).startAnimation(AnimationUtils.loadAnimation(this, R.anim.fade_out));
 
@@ -162,7 +150,7 @@ public class MainUI extends AppCompatActivity {
 
         mechanicsCloseButton.setOnClickListener(v -> {
             v.startAnimation(AnimationUtils.loadAnimation(this, R.anim.button_pop));
-            if (clickSound != null) clickSound.start();
+            sound.playPopSound();
 
             mechanicsDialog.findViewById(android.R.id.content).startAnimation(AnimationUtils.loadAnimation(this, R.anim.fade_out));
 
@@ -197,9 +185,7 @@ public class MainUI extends AppCompatActivity {
             settingsCloseButton.startAnimation(popAnimation);
 
             // Play click sound effect
-            if (clickSound != null) {
-                clickSound.start();
-            }
+            sound.playPopSound();
 
             // Delay the dismissal slightly to ensure the sound plays
             settingsCloseButton.postDelayed(dialog::dismiss, 150);
@@ -211,30 +197,13 @@ public class MainUI extends AppCompatActivity {
     @Override
     protected void onPause() {
         super.onPause();
-        if (mediaPlayer != null && mediaPlayer.isPlaying()) {
-            mediaPlayer.pause();
-        }
+        sound.pauseBgm();
     }
 
     @Override
     protected void onResume() {
         super.onResume();
-        if (mediaPlayer != null) {
-            mediaPlayer.start();
-        }
-    }
-
-    @Override
-    protected void onDestroy() {
-        super.onDestroy();
-        if (mediaPlayer != null) {
-            mediaPlayer.stop();
-            mediaPlayer.release();
-            mediaPlayer = null;
-        }
-        if (clickSound != null) {
-            clickSound.release();
-            clickSound = null;
-        }
+        // Coming back from the game this cancels its pause fade, so the music carries on.
+        sound.startBgm(SoundManager.MENU_MUSIC);
     }
 }
@@ -0,0 +1,265 @@
+package com.example.minigame;
+
+import android.content.Context;
+import android.media.MediaPlayer;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * The one background music channel, shared by every screen, so moving between the menu and
+ * the game keeps the same prepared player instead of stopping and re-creating one.
+ *
+ * A track loops without a gap: two players of it take turns, each queued behind the other with
+ * setNextMediaPlayer(), and the one that just finished is rewound and queued again while the
+ * other plays. Playing a different track crossfades to it. A pause fades out and only then
+ * pauses the player; a play that arrives before that cancels it. Every screen plays its track
+ * from onResume() and pauses it in onPause(), so when one activity starts another the music
+ * does not stop in between.
+ *
+ * Thread-safe: the public methods post to the main thread, which owns the players and runs
+ * the fades and the player callbacks.
+ */
+final class MusicChannel {
+
+    private static final String TAG = "MusicChannel";
+
+    private static final long CROSSFADE_MILLIS = 1500;
+    private static final long PAUSE_FADE_MILLIS = 300;
+    private static final long RESUME_FADE_MILLIS = 300;
+    private static final long FRAME_MILLIS = 20;
+
+    private final Context context;
+    private final float volume;
+    private final Handler main = new Handler(Looper.getMainLooper());
+    private final Runnable fadeStep = this::stepFades;
+
+    // Main thread only from here on.
+    private Track current;   // Fading in, playing, or fading out for a pause.
+    private Track outgoing;  // Fading out for a track switch; released when silent.
+    private boolean stepping = false;
+    private long lastStep;
+
+    /**
+     * @param volume Player volume at full gain.
+     */
+    MusicChannel(Context context, float volume) {
+        this.context = context.getApplicationContext();
+        this.volume = volume;
+    }
+
+    /**
+     * Plays a raw resource in a loop, crossfading from the current track if it is a different
+     * one, or resumes the current track.
+     */
+    void play(int resId) {
+        main.post(() -> doPlay(resId));
+    }
+
+    /**
+     * Fades out and pauses; the next play() of the same track resumes where it stopped.
+     */
+    void pause() {
+        main.post(() -> {
+            if (current != null) {
+                current.fadeTo(0, PAUSE_FADE_MILLIS);
+                startFades();
+            }
+        });
+    }
+
+    void release() {
+        main.post(() -> {
+            main.removeCallbacks(fadeStep);
+            stepping = false;
+            releaseTrack(current);
+            releaseTrack(outgoing);
+            current = null;
+            outgoing = null;
+        });
+    }
+
+    private void doPlay(int resId) {
+        if (current != null && current.resId == resId) {
+            current.fadeTo(1, RESUME_FADE_MILLIS);
+            current.start();
+            startFades();
+            return;
+        }
+        Track track = open(resId);
+        if (track == null) {
+            return;
+        }
+        // A switch in the middle of a crossfade drops the track that was already leaving.
+        releaseTrack(outgoing);
+        outgoing = current;
+        if (outgoing != null) {
+            outgoing.fadeTo(0, CROSSFADE_MILLIS);
+        }
+        current = track;
+        track.fadeTo(1, outgoing != null ? CROSSFADE_MILLIS : RESUME_FADE_MILLIS);
+        track.apply(volume);
+        track.start();
+        startFades();
+        // The partner is only needed when the first pass ends; preparing it later keeps the
+        // start of the music quick.
+        main.post(() -> queuePartner(track));
+    }
+
+    private Track open(int resId) {
+        MediaPlayer player = MediaPlayer.create(context, resId);
+        if (player == null) {
+            Log.e(TAG, "Could not open music " + resId);
+            return null;
+        }
+        return new Track(resId, player);
+    }
+
+    private void queuePartner(Track track) {
+        if (track.released) {
+            return;
+        }
+        MediaPlayer partner = MediaPlayer.create(context, track.resId);
+        if (partner == null) {
+            // Loops with the player's own short gap instead.
+            track.players[0].setLooping(true);
+            return;
+        }
+        track.players[1] = partner;
+        track.apply(volume);
+        for (MediaPlayer player : track.players) {
+            player.setOnCompletionListener(finished -> onLooped(track, finished));
+        }
+        track.players[0].setNextMediaPlayer(partner);
+    }
+
+    // The queued player has already taken over; rewind the finished one and queue it again.
+    private void onLooped(Track track, MediaPlayer finished) {
+        if (track.released) {
+            return;
+        }
+        track.playing = track.players[0] == finished ? 1 : 0;
+        try {
+            finished.seekTo(0);
+            track.players[track.playing].setNextMediaPlayer(finished);
+        } catch (IllegalStateException e) {
+            Log.w(TAG, "Could not queue the next loop, looping with a gap", e);
+            track.players[track.playing].setLooping(true);
+        }
+    }
+
+    private void startFades() {
+        if (!stepping) {
+            stepping = true;
+            lastStep = SystemClock.uptimeMillis();
+            main.postDelayed(fadeStep, FRAME_MILLIS);
+        }
+    }
+
+    private void stepFades() {
+        long now = SystemClock.uptimeMillis();
+        long elapsed = now - lastStep;
+        lastStep = now;
+        boolean moving = false;
+        if (current != null) {
+            moving = current.step(elapsed);
+            current.apply(volume);
+            if (current.gain == 0 && current.target == 0) {
+                current.pause();
+            }
+        }
+        if (outgoing != null) {
+            moving |= outgoing.step(elapsed);
+            // Down to silence before the release, so the last step is not cut off audibly.
+            outgoing.apply(volume);
+            if (outgoing.gain == 0) {
+                releaseTrack(outgoing);
+                outgoing = null;
+            }
+        }
+        stepping = moving;
+        if (moving) {
+            main.postDelayed(fadeStep, FRAME_MILLIS);
+        }
+    }
+
+    private static void releaseTrack(Track track) {
+        if (track != null) {
+            track.release();
+        }
+    }
+
+    /**
+     * One looping track: its two players and where its fade is.
+     */
+    private static final class Track {
+        final int resId;
+        // players[1] is null until queuePartner().
+        final MediaPlayer[] players = new MediaPlayer[2];
+        int playing = 0;
+        boolean released = false;
+
+        // 0 is silent, 1 is full volume; moves towards target at rate per millisecond.
+        float gain = 0;
+        float target = 0;
+        float rate;
+
+        Track(int resId, MediaPlayer player) {
+            this.resId = resId;
+            players[0] = player;
+        }
+
+        void fadeTo(float target, long millis) {
+            this.target = target;
+            rate = 1f / millis;
+        }
+
+        /**
+         * @return Whether the gain is still moving.
+         */
+        boolean step(long elapsedMillis) {
+            float delta = rate * elapsedMillis;
+            if (gain < target) {
+                gain = Math.min(target, gain + delta);
+            } else if (gain > target) {
+                gain = Math.max(target, gain - delta);
+            }
+            return gain != target;
+        }
+
+        // Equal-power curve: during a crossfade the summed loudness stays level.
+        void apply(float volume) {
+            float v = volume * (float) Math.sin(gain * Math.PI / 2);
+            for (MediaPlayer player : players) {
+                if (player != null) {
+                    player.setVolume(v, v);
+                }
+            }
+        }
+
+        void start() {
+            MediaPlayer player = players[playing];
+            if (!player.isPlaying()) {
+                player.start();
+            }
+        }
+
+        void pause() {
+            MediaPlayer player = players[playing];
+            if (player.isPlaying()) {
+                player.pause();
+            }
+        }
+
+        void release() {
+            released = true;
+            for (int i = 0; i < players.length; i++) {
+                if (players[i] != null) {
+                    players[i].release();
+                    players[i] = null;
+                }
+            }
+        }
+    }
+}
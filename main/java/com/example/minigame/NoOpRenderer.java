@@ -0,0 +1,46 @@
+package com.example.minigame;
+
+import android.view.SurfaceHolder;
+
+/**
+ * Draws nothing. Lets a GamePanel run its game loop, input handling and timing without
+ * drawing, e.g. to measure them without the cost of rendering. Checks of the game rules alone,
+ * such as replay or serial against parallel physics determinism, need no renderer at all; they
+ * run on a {@link Simulation} directly.
+ */
+public class NoOpRenderer implements Renderer {
+
+    @Override
+    public boolean attach(SurfaceHolder holder) {
+        return true;
+    }
+
+    @Override
+    public void setSize(int width, int height) {
+    }
+
+    @Override
+    public void setShowStats(boolean show) {
+    }
+
+    @Override
+    public void setQuality(QualityScheduler.Level level) {
+    }
+
+    @Override
+    public void invalidate() {
+    }
+
+    @Override
+    public void render(Simulation sim, float alpha, FrameStats stats) {
+        stats.setEntityCount(sim.getSquares().count);
+    }
+
+    @Override
+    public void detach() {
+    }
+
+    @Override
+    public void release() {
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.minigame;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs the physics of a simulation step (substep count, integration, wall and pair collisions)
+ * on a work-stealing pool once there are enough entities for it to pay off, e.g. in big waves
+ * and stress runs. Below the threshold everything runs on the calling thread.
+ *
+ * Both paths give bit-identical results, so a game plays the same whatever the device's core
+ * count: the per-entity passes only touch one entity per index, the speed maximum does not
+ * depend on the order it is taken in, and pairs are resolved per band of grid rows with the
+ * pairs across bands deferred to a serial pass in a fixed order; see {@link CollisionBands}.
+ *
+ * Called from the game thread only. A parallel pass allocates a few small task objects.
+ */
+public class ParallelPhysics {
+
+    public static final int DEFAULT_THRESHOLD = 2048;
+
+    // Runs everything on the calling thread.
+    static final ParallelPhysics SERIAL = new ParallelPhysics(null, Integer.MAX_VALUE);
+
+    // Entities per leaf task of the per-entity passes.
+    private static final int GRAIN = 512;
+
+    private static final int SPEED = 0;
+    private static final int UPDATE = 1;
+    private static final int MOVE = 2;
+    private static final int WALLS = 3;
+    private static final int BANDS = 4;
+
+    // Null when the pool cannot help: the calling thread waits for the pass, so a single
+    // worker would only add the handoff.
+    private final ForkJoinPool pool;
+    private volatile int threshold;
+
+    // Arguments of the pass in progress; written before the pool is invoked, which publishes
+    // them to its workers.
+    private EntityStore store;
+    private float dt;
+    private int screenWidth;
+
+    /**
+     * @param pool      Runs the parallel passes; one with fewer than two workers is not used.
+     * @param threshold Fewest entities for which a step runs in parallel.
+     */
+    public ParallelPhysics(ForkJoinPool pool, int threshold) {
+        this.pool = pool != null && pool.getParallelism() > 1 ? pool : null;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Safe to call from any thread; applies from the next pass.
+     */
+    public void setThreshold(int threshold) {
+        this.threshold = threshold;
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Collisions.substeps(store, step, maxSubsteps).
+     */
+    public int substeps(EntityStore store, float step, int maxSubsteps) {
+        if (!isParallel(store)) {
+            return Collisions.substeps(store, step, maxSubsteps);
+        }
+        Pass pass = run(SPEED, store, 0, 0, store.count);
+        return Collisions.substeps(pass.maxRatio, step, maxSubsteps);
+    }
+
+    /**
+     * rndSqr.update(store, dt).
+     */
+    public void update(EntityStore store, float dt) {
+        if (isParallel(store)) {
+            run(UPDATE, store, dt, 0, store.count);
+        } else {
+            rndSqr.update(store, dt);
+        }
+    }
+
+    /**
+     * rndSqr.move(store, dt).
+     */
+    public void move(EntityStore store, float dt) {
+        if (isParallel(store)) {
+            run(MOVE, store, dt, 0, store.count);
+        } else {
+            rndSqr.move(store, dt);
+        }
+    }
+
+    /**
+     * Collisions.sweep(store, dt, screenWidth, screenHeight). Without a spatial index there
+     * are no bands, so it always runs serially.
+     */
+    public void sweep(EntityStore store, float dt, int screenWidth, int screenHeight) {
+        if (!isParallel(store) || store.getIndex() == null) {
+            Collisions.sweep(store, dt, screenWidth, screenHeight);
+            return;
+        }
+        run(WALLS, store, dt, screenWidth, store.count);
+        CollisionBands bands = Collisions.partition(store, screenWidth, screenHeight);
+        run(BANDS, store, dt, screenWidth, bands.count);
+        Collisions.resolveDeferred(store, dt);
+    }
+
+    private boolean isParallel(EntityStore store) {
+        return pool != null && store.count >= threshold;
+    }
+
+    private Pass run(int op, EntityStore store, float dt, int screenWidth, int to) {
+        this.store = store;
+        this.dt = dt;
+        this.screenWidth = screenWidth;
+        Pass pass = new Pass(op, 0, to);
+        pool.invoke(pass);
+        this.store = null;
+        return pass;
+    }
+
+    /**
+     * One pass over entities (or bands) from..to-1, split in halves until small enough.
+     */
+    private final class Pass extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int op;
+        private final int from;
+        private final int to;
+        // Result of SPEED.
+        float maxRatio;
+
+        Pass(int op, int from, int to) {
+            this.op = op;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            int grain = op == BANDS ? 1 : GRAIN;
+            if (to - from > grain) {
+                int mid = (from + to) >>> 1;
+                Pass left = new Pass(op, from, mid);
+                Pass right = new Pass(op, mid, to);
+                invokeAll(left, right);
+                maxRatio = Math.max(left.maxRatio, right.maxRatio);
+                return;
+            }
+            switch (op) {
+                case SPEED:
+                    maxRatio = Collisions.maxSpeedRatio(store, from, to);
+                    break;
+                case UPDATE:
+                    rndSqr.update(store, dt, from, to);
+                    break;
+                case MOVE:
+                    rndSqr.move(store, dt, from, to);
+                    break;
+                case WALLS:
+                    Collisions.collideWithWalls(store, dt, screenWidth, from, to);
+                    break;
+                case BANDS:
+                    for (int band = from; band < to; band++) {
+                        Collisions.collideBand(store, band, dt);
+                    }
+                    break;
+            }
+        }
+    }
+}
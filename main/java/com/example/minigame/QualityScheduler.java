@@ -0,0 +1,135 @@
+package com.example.minigame;
+
+import java.util.Arrays;
+
+/**
+ * Picks the game loop's quality level from how long recent frames took to produce. When the
+ * 95th percentile of a window of frames misses the frame budget (older devices, thermal
+ * throttling), quality steps down one level; after several windows with plenty of headroom it
+ * steps back up. Each level trades something visible for time:
+ *
+ * - HUD text and the stats overlay are refreshed less often,
+ * - fewer collision substeps are allowed (very fast objects may pass through each other),
+ * - frames are drawn every second display refresh,
+ * - sprites are drawn without rotation.
+ *
+ * In power-save mode the frame rate is also capped at POWER_SAVE_FPS.
+ *
+ * Game thread only, apart from setPowerSave(). Allocates nothing per frame.
+ */
+public class QualityScheduler {
+
+    /**
+     * One quality level. Level 0 is full quality.
+     */
+    public static final class Level {
+        // Draw every n-th display refresh.
+        public final int frameDivisor;
+        public final boolean rotateSprites;
+        // Frames between HUD refreshes.
+        public final int hudRefreshFrames;
+        public final int maxSubsteps;
+
+        Level(int frameDivisor, boolean rotateSprites, int hudRefreshFrames, int maxSubsteps) {
+            this.frameDivisor = frameDivisor;
+            this.rotateSprites = rotateSprites;
+            this.hudRefreshFrames = hudRefreshFrames;
+            this.maxSubsteps = maxSubsteps;
+        }
+    }
+
+    private static final Level[] LEVELS = {
+            new Level(1, true, 1, Collisions.MAX_SUBSTEPS),
+            new Level(1, true, 4, 8),
+            new Level(2, true, 4, 8),
+            new Level(2, false, 8, 4),
+    };
+
+    public static final int POWER_SAVE_FPS = 60;
+
+    // Frames per measurement window.
+    private static final int WINDOW = 60;
+    // Step down when the window's p95 exceeds the budget by this factor.
+    private static final float SLOW = 1.1f;
+    // Step up when the window's p95 fits in this fraction of the next level's budget, for
+    // UP_WINDOWS windows in a row.
+    private static final float FAST = 0.6f;
+    private static final int UP_WINDOWS = 3;
+
+    private final long refreshNanos;
+    private volatile boolean powerSave = false;
+    private int level = 0;
+    private final long[] window = new long[WINDOW];
+    private int frames = 0;
+    private int fastWindows = 0;
+
+    /**
+     * @param refreshNanos Display refresh period.
+     */
+    public QualityScheduler(long refreshNanos) {
+        this.refreshNanos = refreshNanos;
+    }
+
+    /**
+     * Caps the frame rate at POWER_SAVE_FPS, e.g. while the system's battery saver is on.
+     * Safe to call from any thread.
+     */
+    public void setPowerSave(boolean powerSave) {
+        this.powerSave = powerSave;
+    }
+
+    /**
+     * Records how long one frame's work took: simulation steps and rendering, not the wait for
+     * the next frame.
+     *
+     * @return true if the level changed; read it with getLevel().
+     */
+    public boolean onFrame(long workNanos) {
+        window[frames++] = workNanos;
+        if (frames < WINDOW) {
+            return false;
+        }
+        frames = 0;
+        Arrays.sort(window);
+        long p95 = window[WINDOW * 95 / 100];
+
+        if (p95 > getFrameNanos(level) * SLOW && level < LEVELS.length - 1) {
+            level++;
+            fastWindows = 0;
+            return true;
+        }
+        if (level > 0 && p95 < getFrameNanos(level - 1) * FAST) {
+            if (++fastWindows >= UP_WINDOWS) {
+                level--;
+                fastWindows = 0;
+                return true;
+            }
+        } else {
+            fastWindows = 0;
+        }
+        return false;
+    }
+
+    public Level getLevel() {
+        return LEVELS[level];
+    }
+
+    public int getLevelIndex() {
+        return level;
+    }
+
+    /**
+     * @return Time between drawn frames at the current level.
+     */
+    public long getFrameNanos() {
+        return getFrameNanos(level);
+    }
+
+    private long getFrameNanos(int index) {
+        long nanos = refreshNanos * LEVELS[index].frameDivisor;
+        if (powerSave) {
+            nanos = Math.max(nanos, 1_000_000_000L / POWER_SAVE_FPS);
+        }
+        return nanos;
+    }
+}
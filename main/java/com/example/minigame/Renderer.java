@@ -0,0 +1,62 @@
+package com.example.minigame;
+
+import android.view.SurfaceHolder;
+
+/**
+ * Draws the simulation onto the game surface. GamePanel owns one and drives it from the game
+ * thread; the implementations differ only in how pixels reach the screen.
+ *
+ * Lifecycle: attach() before the first frame of a game thread, render() once per display
+ * frame, detach() after its last one. A renderer may be attached again by a later game thread,
+ * e.g. after reset(). release() frees everything once the surface is gone.
+ */
+public interface Renderer {
+
+    /**
+     * Binds the renderer to the surface. Game thread only.
+     *
+     * @return false if this renderer cannot draw on the surface; nothing is held in that case.
+     */
+    boolean attach(SurfaceHolder holder);
+
+    /**
+     * Surface size in pixels. Safe to call from any thread; applied at the next frame.
+     */
+    void setSize(int width, int height);
+
+    /**
+     * Shows or hides the {@link FrameStats} overlay. Safe to call from any thread.
+     */
+    void setShowStats(boolean show);
+
+    /**
+     * Applies a level chosen by the {@link QualityScheduler}. Game thread only.
+     */
+    void setQuality(QualityScheduler.Level level);
+
+    /**
+     * Makes the next frame redraw everything, e.g. after the surface was recreated. Safe to
+     * call from any thread.
+     */
+    void invalidate();
+
+    /**
+     * Draws one frame. Game thread only.
+     *
+     * @param alpha Fraction of a simulation step elapsed since the last tick().
+     * @param stats Receives the entity count and the draw and post timings.
+     */
+    void render(Simulation sim, float alpha, FrameStats stats);
+
+    /**
+     * Unbinds the renderer from the game thread, keeping what a later attach() can reuse. Game
+     * thread only.
+     */
+    void detach();
+
+    /**
+     * Frees everything attach() created. Called on the UI thread once the game thread has
+     * exited and before the surface goes away.
+     */
+    void release();
+}
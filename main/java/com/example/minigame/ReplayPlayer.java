@@ -0,0 +1,255 @@
+package com.example.minigame;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Plays back a recording made by {@link ReplayRecorder}, feeding a {@link Simulation} the same
+ * input on the same ticks. Since the simulation is deterministic it ends up in exactly the
+ * recorded state, which verify() checks.
+ *
+ * Playback does not render or sleep, so playToEnd() runs a whole game as fast as the
+ * simulation allows, e.g. to benchmark a recorded session. Not thread-safe.
+ */
+public class ReplayPlayer {
+
+    private final byte[] data;
+    private final long seed;
+    private final int fruitVariants;
+    private final int pestVariants;
+    private final int flowerVariants;
+    private final int eventsStart;
+
+    private final TouchBatch batch = new TouchBatch(32);
+    private int position;
+    // Tick about to be played, and the tick of the next event.
+    private long tick;
+    private long nextEventTick;
+    private int nextEventType;
+
+    private boolean ended;
+    // The data stops without an END event.
+    private boolean truncated;
+    private int expectedScore;
+    private int expectedLives;
+    private int expectedTaps;
+    private long expectedHash;
+
+    /**
+     * @throws IOException if the data is not a recording this version can play.
+     */
+    public ReplayPlayer(byte[] data) throws IOException {
+        this.data = data;
+        position = 0;
+        if (readInt() != ReplayRecorder.MAGIC) {
+            throw new IOException("Not a replay");
+        }
+        int version = readByte();
+        if (version != ReplayRecorder.VERSION) {
+            throw new IOException("Unsupported replay version " + version);
+        }
+        seed = readLong();
+        fruitVariants = (int) readVarint();
+        pestVariants = (int) readVarint();
+        flowerVariants = (int) readVarint();
+        eventsStart = position;
+        rewind();
+    }
+
+    public static ReplayPlayer load(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream((int) file.length());
+            byte[] chunk = new byte[8192];
+            for (int n; (n = in.read(chunk)) > 0; ) {
+                out.write(chunk, 0, n);
+            }
+            return new ReplayPlayer(out.toByteArray());
+        }
+    }
+
+    /**
+     * @return A fresh simulation set up like the recorded one, to play this replay on.
+     */
+    public Simulation createSimulation() {
+        return new Simulation(seed, 0, 0, fruitVariants, pestVariants, flowerVariants);
+    }
+
+    /**
+     * Starts over from the first tick, e.g. to play the replay again on another simulation.
+     */
+    public void rewind() {
+        position = eventsStart;
+        tick = 0;
+        ended = false;
+        truncated = false;
+        batch.reset();
+        readEventHeader();
+    }
+
+    /**
+     * Plays one tick: applies its recorded input, then advances the simulation.
+     *
+     * @param sim A simulation from createSimulation(), or one reset to getSeed(), that has
+     *            played exactly the ticks before this one.
+     * @return false once the recording has ended; nothing is played then.
+     */
+    public boolean step(Simulation sim) {
+        if (ended) {
+            return false;
+        }
+        if (truncated && sim.isOver()) {
+            ended = true;
+            return false;
+        }
+        while (nextEventTick == tick) {
+            try {
+                if (nextEventType == ReplayRecorder.END) {
+                    expectedScore = (int) readVarint();
+                    expectedLives = readZigzag();
+                    expectedTaps = (int) readVarint();
+                    expectedHash = readLong();
+                    ended = true;
+                    return false;
+                }
+                apply(sim, nextEventType);
+                readEventHeader();
+            } catch (ArrayIndexOutOfBoundsException e) {
+                // Cut off in the middle of an event; drop what was read of it.
+                batch.reset();
+                truncate();
+            }
+        }
+        sim.applyTouches(batch);
+        sim.tick();
+        tick++;
+        return true;
+    }
+
+    /**
+     * Plays every remaining tick.
+     *
+     * @return Number of ticks played.
+     */
+    public long playToEnd(Simulation sim) {
+        long start = tick;
+        while (step(sim)) {
+            // Nothing else to do between ticks.
+        }
+        return tick - start;
+    }
+
+    /**
+     * @return true if the simulation, having played to the end, is in the recorded final
+     * state: same score, lives, taps and objects. Always false for a truncated recording.
+     */
+    public boolean verify(Simulation sim) {
+        return ended && !truncated && sim.getScore() == expectedScore
+                && sim.getLives() == expectedLives && sim.getTaps() == expectedTaps
+                && ReplayRecorder.stateHash(sim) == expectedHash;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return Ticks played so far.
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    public boolean isEnded() {
+        return ended;
+    }
+
+    /**
+     * @return Recorded final score; valid once the replay has ended.
+     */
+    public int getExpectedScore() {
+        return expectedScore;
+    }
+
+    private void apply(Simulation sim, int type) {
+        switch (type) {
+            case ReplayRecorder.BOUNDS: {
+                int width = (int) readVarint();
+                int height = (int) readVarint();
+                sim.setBounds(width, height);
+                break;
+            }
+            case ReplayRecorder.TICK_RATE:
+                sim.setTickRate((int) readVarint());
+                break;
+            case ReplayRecorder.SUBSTEPS:
+                sim.setMaxSubsteps((int) readVarint());
+                break;
+            case ReplayRecorder.TOUCHES: {
+                batch.addStrokes((int) readVarint());
+                int segments = (int) readVarint();
+                for (int k = 0; k < segments; k++) {
+                    batch.addSegment(readFloat(), readFloat(), readFloat(), readFloat());
+                }
+                break;
+            }
+            default:
+                throw new IllegalStateException("Unknown replay event " + type + " at tick "
+                        + tick);
+        }
+    }
+
+    private void readEventHeader() {
+        if (position >= data.length) {
+            truncate();
+            return;
+        }
+        try {
+            nextEventTick = tick + readVarint();
+            nextEventType = readByte();
+        } catch (ArrayIndexOutOfBoundsException e) {
+            truncate();
+        }
+    }
+
+    // The data stops before END: play what there is, until the game is over.
+    private void truncate() {
+        truncated = true;
+        nextEventTick = Long.MAX_VALUE;
+        nextEventType = ReplayRecorder.END;
+    }
+
+    private int readByte() {
+        return data[position++] & 0xFF;
+    }
+
+    private int readInt() {
+        return (readByte() << 24) | (readByte() << 16) | (readByte() << 8) | readByte();
+    }
+
+    private long readLong() {
+        return ((long) readInt() << 32) | (readInt() & 0xFFFFFFFFL);
+    }
+
+    private float readFloat() {
+        return Float.intBitsToFloat(readInt());
+    }
+
+    private long readVarint() {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    private int readZigzag() {
+        int value = (int) readVarint();
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
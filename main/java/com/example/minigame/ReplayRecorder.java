@@ -0,0 +1,281 @@
+package com.example.minigame;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Records everything a {@link Simulation} sees from outside, tick by tick, so the game can be
+ * reproduced exactly with {@link ReplayPlayer}: the seed, which all randomness derives from,
+ * and per tick the playfield size, tick rate and substep limit when they change, and the touch
+ * batch when there is one. A tick without input costs nothing.
+ *
+ * Format, big-endian: "RPLY", version, seed, fruit/pest/flower variant counts, then events.
+ * Each event is the number of ticks since the previous event (varint), a type byte and its
+ * payload. END closes the log with the tick count and the final score, lives, taps and a hash
+ * of every object, for the player to check against.
+ *
+ * Game thread only; appending a tick allocates nothing once the buffer has grown.
+ */
+public class ReplayRecorder {
+
+    static final int MAGIC = 0x52504C59; // "RPLY"
+    // 2: pairs are resolved band by band; see CollisionBands.
+    static final int VERSION = 2;
+
+    static final int BOUNDS = 1;     // width, height
+    static final int TICK_RATE = 2;  // ticks per second
+    static final int SUBSTEPS = 3;   // substep limit
+    static final int TOUCHES = 4;    // strokes, segments, 4 floats per segment
+    static final int END = 5;        // score, lives, taps, state hash
+
+    // Size of saveState()'s output.
+    static final int STATE_BYTES = 8 + 8 + 1 + 4 + 8;
+
+    private byte[] buffer;
+    private int length = 0;
+
+    // Tick about to be recorded, and the one of the last event.
+    private long tick = 0;
+    private long lastEventTick = 0;
+    private int width = -1;
+    private int height = -1;
+    private int tickRate = -1;
+    private int maxSubsteps = -1;
+    private boolean finished = false;
+
+    /**
+     * @param initialCapacity Bytes held before the buffer has to grow.
+     */
+    public ReplayRecorder(int initialCapacity) {
+        buffer = new byte[Math.max(64, initialCapacity)];
+    }
+
+    /**
+     * Starts a new recording of the game sim is about to play, dropping any previous one.
+     * Call it before the first tick, after reset() for a new round.
+     */
+    public void start(Simulation sim) {
+        length = 0;
+        tick = 0;
+        lastEventTick = 0;
+        width = -1;
+        height = -1;
+        tickRate = -1;
+        maxSubsteps = -1;
+        finished = false;
+        writeInt(MAGIC);
+        writeByte(VERSION);
+        writeLong(sim.getSeed());
+        writeVarint(sim.getFruitVariants());
+        writeVarint(sim.getPestVariants());
+        writeVarint(sim.getFlowerVariants());
+    }
+
+    /**
+     * Records the input of one tick. Call it right before the simulation consumes it, i.e.
+     * before applyTouches(batch) and tick().
+     */
+    public void onTick(Simulation sim, TouchBatch batch) {
+        if (finished) {
+            return;
+        }
+        if (sim.getWidth() != width || sim.getHeight() != height) {
+            width = sim.getWidth();
+            height = sim.getHeight();
+            event(BOUNDS);
+            writeVarint(width);
+            writeVarint(height);
+        }
+        if (sim.getTickRate() != tickRate) {
+            tickRate = sim.getTickRate();
+            event(TICK_RATE);
+            writeVarint(tickRate);
+        }
+        if (sim.getMaxSubsteps() != maxSubsteps) {
+            maxSubsteps = sim.getMaxSubsteps();
+            event(SUBSTEPS);
+            writeVarint(maxSubsteps);
+        }
+        int segments = batch.size();
+        if (segments > 0 || batch.strokes() > 0) {
+            event(TOUCHES);
+            writeVarint(batch.strokes());
+            writeVarint(segments);
+            for (int k = 0; k < segments; k++) {
+                writeFloat(batch.fromX(k));
+                writeFloat(batch.fromY(k));
+                writeFloat(batch.toX(k));
+                writeFloat(batch.toY(k));
+            }
+        }
+        tick++;
+    }
+
+    /**
+     * Closes the recording with the game's outcome. Later ticks are ignored.
+     */
+    public void finish(Simulation sim) {
+        if (finished) {
+            return;
+        }
+        event(END);
+        writeVarint(sim.getScore());
+        writeZigzag(sim.getLives());
+        writeVarint(sim.getTaps());
+        writeLong(stateHash(sim));
+        finished = true;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * @return Size of the recording so far, in bytes.
+     */
+    public int size() {
+        return length;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, length);
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(buffer, 0, length);
+    }
+
+    /**
+     * Writes where the recording is, for GameSnapshot, so a restored game keeps recording the
+     * same round. The recording itself grows with the game and is left out; save it with
+     * writeTo() at the same time.
+     */
+    void saveState(ByteBuffer out) {
+        out.putLong(tick);
+        out.putLong(lastEventTick);
+        out.put((byte) (finished ? 1 : 0));
+        out.putInt(length);
+        out.putLong(checksum(buffer, length));
+    }
+
+    /**
+     * Reads what saveState() wrote, and the recording writeTo() wrote with it from recording.
+     * Bounds, tick rate and substep limit are recorded again at the next tick, as they may
+     * differ after a restore.
+     *
+     * @throws IOException if the recording is not the one saved with the state.
+     */
+    void restoreState(ByteBuffer in, InputStream recording) throws IOException {
+        long savedTick = in.getLong();
+        long savedEventTick = in.getLong();
+        boolean savedFinished = in.get() != 0;
+        int n = in.getInt();
+        long crc = in.getLong();
+        if (n < 0) {
+            throw new IOException("Invalid replay length " + n);
+        }
+        length = 0;
+        ensure(n);
+        int read = 0;
+        while (read < n) {
+            int k = recording.read(buffer, read, n - read);
+            if (k < 0) {
+                throw new IOException("Replay is shorter than the snapshot's");
+            }
+            read += k;
+        }
+        if (recording.read() >= 0 || checksum(buffer, n) != crc) {
+            throw new IOException("Replay does not belong to the snapshot");
+        }
+        length = n;
+        tick = savedTick;
+        lastEventTick = savedEventTick;
+        finished = savedFinished;
+        width = -1;
+        height = -1;
+        tickRate = -1;
+        maxSubsteps = -1;
+    }
+
+    private static long checksum(byte[] data, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, length);
+        return crc.getValue();
+    }
+
+    /**
+     * @return A hash of every object's position, motion and kind and of the tick count, so
+     * two games practically only agree on it if they are in exactly the same state.
+     */
+    static long stateHash(Simulation sim) {
+        EntityStore s = sim.getSquares();
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < s.count; i++) {
+            h = mix(h, Float.floatToIntBits(s.x[i]));
+            h = mix(h, Float.floatToIntBits(s.y[i]));
+            h = mix(h, Float.floatToIntBits(s.dx[i]));
+            h = mix(h, Float.floatToIntBits(s.dy[i]));
+            h = mix(h, Float.floatToIntBits(s.angle[i]));
+            h = mix(h, s.flags[i]);
+            h = mix(h, s.sprite[i]);
+        }
+        h = mix(h, s.count);
+        return mix(h, sim.getTickCount());
+    }
+
+    private static long mix(long h, long value) {
+        return (h ^ value) * 0x100000001B3L;
+    }
+
+    private void event(int type) {
+        writeVarint(tick - lastEventTick);
+        writeByte(type);
+        lastEventTick = tick;
+    }
+
+    private void ensure(int bytes) {
+        if (length + bytes > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(length + bytes, buffer.length * 2));
+        }
+    }
+
+    private void writeByte(int value) {
+        ensure(1);
+        buffer[length++] = (byte) value;
+    }
+
+    private void writeInt(int value) {
+        ensure(4);
+        buffer[length++] = (byte) (value >>> 24);
+        buffer[length++] = (byte) (value >>> 16);
+        buffer[length++] = (byte) (value >>> 8);
+        buffer[length++] = (byte) value;
+    }
+
+    private void writeLong(long value) {
+        writeInt((int) (value >>> 32));
+        writeInt((int) value);
+    }
+
+    private void writeFloat(float value) {
+        writeInt(Float.floatToIntBits(value));
+    }
+
+    // Unsigned LEB128: seven bits per byte, low bits first.
+    private void writeVarint(long value) {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[length++] = (byte) value;
+    }
+
+    private void writeZigzag(int value) {
+        writeVarint(((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL);
+    }
+}
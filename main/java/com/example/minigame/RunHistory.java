@@ -0,0 +1,361 @@
+package com.example.minigame;
+
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Every finished game, kept in an append-only binary log with a small in-memory index for the
+ * best runs overall and per day.
+ *
+ * The log is a header followed by fixed-size records, each ending in a CRC32, so a record torn
+ * by a crash mid-write is detected and cut off on the next load. All file access happens on a
+ * single worker thread: the log is loaded there when the history is created, and appended
+ * records are written in batches with one fsync each. append() and the queries only touch the
+ * index and never wait for the disk, so they are safe to call from the UI thread. Until the
+ * load has finished the queries only see runs appended since.
+ *
+ * Thread-safe.
+ */
+public class RunHistory {
+
+    private static final String TAG = "RunHistory";
+
+    private static final int MAGIC = 0x52554E48;  // "RUNH"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+    // Three longs, four ints and the CRC of the preceding bytes.
+    private static final int RECORD_BYTES = 3 * 8 + 4 * 4 + 4;
+
+    // Number of runs kept in the top list.
+    public static final int TOP_N = 10;
+    // Appends within this window are written with a single fsync.
+    private static final long FLUSH_DELAY_MILLIS = 500;
+    private static final long MILLIS_PER_DAY = 24 * 60 * 60 * 1000L;
+
+    private final File file;
+    private final TimeZone timeZone;
+    private final ScheduledExecutorService worker;
+
+    // Guarded by this.
+    private Index index = new Index();
+    private final List<RunRecord> pending = new ArrayList<>();
+    private boolean flushScheduled = false;
+
+    private volatile boolean loaded = false;
+
+    // Worker thread only.
+    private FileChannel channel;
+
+    /**
+     * Starts loading the log in the background.
+     *
+     * @param timeZone Decides which day a run counts towards.
+     */
+    public RunHistory(File file, TimeZone timeZone) {
+        this.file = file;
+        this.timeZone = timeZone;
+        worker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "RunHistory");
+            thread.setDaemon(true);
+            return thread;
+        });
+        worker.execute(this::load);
+    }
+
+    /**
+     * Adds a run. It shows up in the queries at once and reaches the disk shortly after.
+     */
+    public synchronized void append(RunRecord run) {
+        index.add(run, dayOf(run.getTimestampMillis()));
+        pending.add(run);
+        if (!flushScheduled) {
+            flushScheduled = true;
+            worker.schedule(this::writePending, FLUSH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Writes everything appended so far without waiting for the batching delay, e.g. when the
+     * app goes to the background.
+     *
+     * @return Completes once the runs are on disk.
+     */
+    public Future<?> flush() {
+        return worker.submit(this::writePending);
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public synchronized int size() {
+        return index.count;
+    }
+
+    /**
+     * @return The highest score of any run, or 0 if there is none.
+     */
+    public synchronized int getBestScore() {
+        return index.topCount == 0 ? 0 : index.scores[index.top[0]];
+    }
+
+    /**
+     * @return Up to n (at most TOP_N) runs, best first. Equal scores keep the earlier run first.
+     */
+    public synchronized List<RunRecord> getTopRuns(int n) {
+        int size = Math.min(n, index.topCount);
+        List<RunRecord> runs = new ArrayList<>(size);
+        for (int k = 0; k < size; k++) {
+            runs.add(index.record(index.top[k]));
+        }
+        return runs;
+    }
+
+    /**
+     * @return The best run on the day the given time falls on, or null if none was played.
+     */
+    public synchronized RunRecord getBestOfDay(long timeMillis) {
+        int d = Arrays.binarySearch(index.days, 0, index.dayCount, dayOf(timeMillis));
+        return d < 0 ? null : index.record(index.dayBest[d]);
+    }
+
+    private long dayOf(long timeMillis) {
+        return Math.floorDiv(timeMillis + timeZone.getOffset(timeMillis), MILLIS_PER_DAY);
+    }
+
+    // --- Worker thread ---
+
+    private void load() {
+        Index loadedIndex = new Index();
+        try {
+            long good = readLog(loadedIndex);
+            if (good >= 0 && good < file.length()) {
+                // Cut off a torn record so new ones are appended on a record boundary.
+                Log.w(TAG, "Truncating run history from " + file.length() + " to " + good + " bytes");
+                try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                    raf.setLength(good);
+                }
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Could not read run history", e);
+        }
+
+        synchronized (this) {
+            // Runs appended while loading come after the ones on disk.
+            Index session = index;
+            for (int i = 0; i < session.count; i++) {
+                loadedIndex.add(session.record(i), dayOf(session.timestamps[i]));
+            }
+            index = loadedIndex;
+        }
+        loaded = true;
+    }
+
+    /**
+     * Reads every intact record into the index.
+     *
+     * @return Length of the intact part of the file, or -1 if it is missing or not a run log.
+     */
+    private long readLog(Index into) throws IOException {
+        if (!file.exists()) {
+            return -1;
+        }
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            if (file.length() < HEADER_BYTES || in.readInt() != MAGIC || in.readInt() != VERSION) {
+                File corrupt = new File(file.getPath() + ".corrupt");
+                Log.w(TAG, "Not a run history, moving it to " + corrupt);
+                in.close();
+                if (!file.renameTo(corrupt)) {
+                    throw new IOException("Could not move " + file);
+                }
+                return -1;
+            }
+
+            long good = HEADER_BYTES;
+            byte[] bytes = new byte[RECORD_BYTES];
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            CRC32 crc = new CRC32();
+            while (true) {
+                try {
+                    in.readFully(bytes);
+                } catch (EOFException e) {
+                    break;
+                }
+                crc.reset();
+                crc.update(bytes, 0, RECORD_BYTES - 4);
+                buffer.clear();
+                if (buffer.getInt(RECORD_BYTES - 4) != (int) crc.getValue()) {
+                    break;
+                }
+                RunRecord run = new RunRecord(buffer.getLong(), buffer.getLong(), buffer.getLong(),
+                        buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt());
+                into.add(run, dayOf(run.getTimestampMillis()));
+                good += RECORD_BYTES;
+            }
+            return good;
+        }
+    }
+
+    private void writePending() {
+        List<RunRecord> batch;
+        synchronized (this) {
+            flushScheduled = false;
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = new ArrayList<>(pending);
+            pending.clear();
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(batch.size() * RECORD_BYTES);
+        CRC32 crc = new CRC32();
+        for (RunRecord run : batch) {
+            int start = buffer.position();
+            buffer.putLong(run.getTimestampMillis());
+            buffer.putLong(run.getSeed());
+            buffer.putLong(run.getDurationMillis());
+            buffer.putInt(run.getScore());
+            buffer.putInt(run.getWaves());
+            buffer.putInt(run.getLivesLost());
+            buffer.putInt(run.getTaps());
+            crc.reset();
+            crc.update(buffer.array(), start, RECORD_BYTES - 4);
+            buffer.putInt((int) crc.getValue());
+        }
+        buffer.flip();
+
+        try {
+            if (channel == null) {
+                channel = new FileOutputStream(file, true).getChannel();
+                if (channel.size() == 0) {
+                    ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                    header.putInt(MAGIC).putInt(VERSION).flip();
+                    while (header.hasRemaining()) {
+                        channel.write(header);
+                    }
+                }
+            }
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not write run history", e);
+            closeChannel();
+            // Keep the runs for the next attempt; they are still in the index meanwhile.
+            synchronized (this) {
+                pending.addAll(0, batch);
+            }
+        }
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Nothing left to do with it.
+            }
+            channel = null;
+        }
+    }
+
+    /**
+     * Runs as parallel primitive arrays in log order, plus the indices of the TOP_N best and of
+     * the best run of every day (days sorted ascending).
+     */
+    private static final class Index {
+        int count = 0;
+        long[] timestamps = new long[16];
+        long[] seeds = new long[16];
+        long[] durations = new long[16];
+        int[] scores = new int[16];
+        int[] waves = new int[16];
+        int[] livesLost = new int[16];
+        int[] taps = new int[16];
+
+        final int[] top = new int[TOP_N];
+        int topCount = 0;
+
+        long[] days = new long[16];
+        int[] dayBest = new int[16];
+        int dayCount = 0;
+
+        void add(RunRecord run, long day) {
+            if (count == scores.length) {
+                int capacity = count * 2;
+                timestamps = Arrays.copyOf(timestamps, capacity);
+                seeds = Arrays.copyOf(seeds, capacity);
+                durations = Arrays.copyOf(durations, capacity);
+                scores = Arrays.copyOf(scores, capacity);
+                waves = Arrays.copyOf(waves, capacity);
+                livesLost = Arrays.copyOf(livesLost, capacity);
+                taps = Arrays.copyOf(taps, capacity);
+            }
+            int i = count++;
+            timestamps[i] = run.getTimestampMillis();
+            seeds[i] = run.getSeed();
+            durations[i] = run.getDurationMillis();
+            scores[i] = run.getScore();
+            waves[i] = run.getWaves();
+            livesLost[i] = run.getLivesLost();
+            taps[i] = run.getTaps();
+
+            // Top list: insert after every run with an equal or higher score.
+            int at = topCount;
+            while (at > 0 && scores[top[at - 1]] < scores[i]) {
+                at--;
+            }
+            if (at < TOP_N) {
+                int moved = Math.min(topCount, TOP_N - 1) - at;
+                System.arraycopy(top, at, top, at + 1, moved);
+                top[at] = i;
+                topCount = Math.min(topCount + 1, TOP_N);
+            }
+
+            // Per-day best.
+            int d = Arrays.binarySearch(days, 0, dayCount, day);
+            if (d >= 0) {
+                if (scores[i] > scores[dayBest[d]]) {
+                    dayBest[d] = i;
+                }
+                return;
+            }
+            d = -d - 1;
+            if (dayCount == days.length) {
+                days = Arrays.copyOf(days, dayCount * 2);
+                dayBest = Arrays.copyOf(dayBest, dayCount * 2);
+            }
+            System.arraycopy(days, d, days, d + 1, dayCount - d);
+            System.arraycopy(dayBest, d, dayBest, d + 1, dayCount - d);
+            days[d] = day;
+            dayBest[d] = i;
+            dayCount++;
+        }
+
+        RunRecord record(int i) {
+            return new RunRecord(timestamps[i], seeds[i], durations[i],
+                    scores[i], waves[i], livesLost[i], taps[i]);
+        }
+    }
+}
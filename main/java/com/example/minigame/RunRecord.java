@@ -0,0 +1,70 @@
+package com.example.minigame;
+
+/**
+ * Summary of one finished game, as kept by {@link RunHistory}.
+ */
+public class RunRecord {
+
+    private final long timestampMillis;
+    private final long seed;
+    private final long durationMillis;
+    private final int score;
+    private final int waves;
+    private final int livesLost;
+    private final int taps;
+
+    /**
+     * @param timestampMillis Wall-clock time the game ended.
+     * @param seed            Simulation seed, so the run can be reproduced.
+     * @param durationMillis  Simulated play time.
+     * @param waves           Number of waves reached.
+     * @param livesLost       Lives lost to pests and dropped fruit.
+     * @param taps            Number of taps and swipes.
+     */
+    public RunRecord(long timestampMillis, long seed, long durationMillis,
+                     int score, int waves, int livesLost, int taps) {
+        this.timestampMillis = timestampMillis;
+        this.seed = seed;
+        this.durationMillis = durationMillis;
+        this.score = score;
+        this.waves = waves;
+        this.livesLost = livesLost;
+        this.taps = taps;
+    }
+
+    /**
+     * Summarizes a game that has just ended.
+     */
+    public static RunRecord of(Simulation sim, long timestampMillis) {
+        return new RunRecord(timestampMillis, sim.getSeed(), sim.getElapsedMillis(),
+                sim.getScore(), sim.getWaveCount(), sim.getLivesLost(), sim.getTaps());
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getWaves() {
+        return waves;
+    }
+
+    public int getLivesLost() {
+        return livesLost;
+    }
+
+    public int getTaps() {
+        return taps;
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.minigame;
+
+import java.util.Arrays;
+
+/**
+ * Decides which sound effects actually reach the sound pool. A fast swipe across a dense wave
+ * triggers many tap sounds within a few frames; most of them would only be dropped or cut off
+ * by the pool anyway.
+ *
+ * - Triggers of a category within its coalescing window of the last one are dropped.
+ * - Each category may only hold so many voices at once. When it is full, or every voice is
+ *   busy, the voice with the lowest priority (the oldest among equals) is stopped to make room,
+ *   unless the new sound's priority is lower still, in which case the new one is dropped.
+ * - Samples that have not finished loading are never played.
+ *
+ * The pool does not report when a stream ends, so a voice counts as busy for its category's
+ * nominal length. Thread-safe; sounds are triggered from both the game and the UI thread.
+ */
+public class SfxMixer {
+
+    public static final int FRUIT = 0;
+    public static final int FLOWER = 1;
+    public static final int PEST = 2;
+    public static final int UI = 3;      // Button pops, losing a life.
+    public static final int JINGLE = 4;  // Game over.
+    public static final int CATEGORIES = 5;
+
+    /**
+     * Where sounds are played, e.g. a SoundPool.
+     */
+    public interface Output {
+        /**
+         * @return Stream id, or 0 if the sound could not be played.
+         */
+        int play(int sampleId, float volume, int priority);
+
+        void stop(int streamId);
+    }
+
+    private final Output output;
+
+    // Per category.
+    private final int[] maxVoices = new int[CATEGORIES];
+    private final int[] priorities = new int[CATEGORIES];
+    private final long[] lengthNanos = new long[CATEGORIES];
+    private final long[] coalesceNanos = new long[CATEGORIES];
+    private final long[] lastTrigger = new long[CATEGORIES];
+    private final boolean[] triggered = new boolean[CATEGORIES];
+
+    // Per voice; a voice is free when its stream is 0 or its end has passed.
+    private final int[] streams;
+    private final int[] voiceCategory;
+    private final long[] voiceStart;
+    private final long[] voiceEnd;
+
+    // Indexed by sample id.
+    private boolean[] loaded = new boolean[16];
+
+    private long coalesced = 0;
+    private long stolen = 0;
+    private long dropped = 0;
+
+    /**
+     * @param voices Total number of voices; should match the pool's maximum stream count so the
+     *               pool never has to steal streams itself.
+     */
+    public SfxMixer(Output output, int voices) {
+        this.output = output;
+        streams = new int[voices];
+        voiceCategory = new int[voices];
+        voiceStart = new long[voices];
+        voiceEnd = new long[voices];
+        for (int c = 0; c < CATEGORIES; c++) {
+            maxVoices[c] = voices;
+        }
+    }
+
+    /**
+     * @param voices         Voices the category may hold at once.
+     * @param priority       Higher priorities steal voices from lower ones.
+     * @param lengthMillis   How long a voice of this category stays busy.
+     * @param coalesceMillis Triggers closer than this to the previous one are dropped; 0 for none.
+     */
+    public synchronized void setCategory(int category, int voices, int priority,
+                                         long lengthMillis, long coalesceMillis) {
+        maxVoices[category] = voices;
+        priorities[category] = priority;
+        lengthNanos[category] = lengthMillis * 1_000_000L;
+        coalesceNanos[category] = coalesceMillis * 1_000_000L;
+    }
+
+    /**
+     * Called from the pool's load-complete callback.
+     */
+    public synchronized void onLoaded(int sampleId, boolean success) {
+        if (sampleId < 0) {
+            return;
+        }
+        if (sampleId >= loaded.length) {
+            loaded = Arrays.copyOf(loaded, Math.max(sampleId + 1, loaded.length * 2));
+        }
+        loaded[sampleId] = success;
+    }
+
+    public synchronized boolean isLoaded(int sampleId) {
+        return sampleId >= 0 && sampleId < loaded.length && loaded[sampleId];
+    }
+
+    /**
+     * Plays a sample if the category's limits allow it.
+     *
+     * @param now Current System.nanoTime().
+     * @return Stream id, or 0 if the sound was not played.
+     */
+    public synchronized int trigger(int category, int sampleId, float volume, long now) {
+        if (!isLoaded(sampleId)) {
+            dropped++;
+            return 0;
+        }
+        if (triggered[category] && now - lastTrigger[category] < coalesceNanos[category]) {
+            coalesced++;
+            return 0;
+        }
+
+        int priority = priorities[category];
+        int inCategory = 0;
+        int free = -1;
+        int victim = -1;           // Lowest priority, then oldest, voice overall.
+        int categoryVictim = -1;   // Oldest voice of this category.
+        for (int v = 0; v < streams.length; v++) {
+            if (streams[v] == 0 || now - voiceEnd[v] >= 0) {
+                streams[v] = 0;
+                if (free < 0) {
+                    free = v;
+                }
+                continue;
+            }
+            if (voiceCategory[v] == category) {
+                inCategory++;
+                if (categoryVictim < 0 || voiceStart[v] < voiceStart[categoryVictim]) {
+                    categoryVictim = v;
+                }
+            }
+            if (victim < 0 || isWeaker(v, victim)) {
+                victim = v;
+            }
+        }
+
+        int slot;
+        if (inCategory >= maxVoices[category]) {
+            slot = categoryVictim;
+        } else if (free >= 0) {
+            slot = free;
+        } else if (priorities[voiceCategory[victim]] <= priority) {
+            slot = victim;
+        } else {
+            dropped++;
+            return 0;
+        }
+        if (streams[slot] != 0) {
+            output.stop(streams[slot]);
+            stolen++;
+        }
+
+        int stream = output.play(sampleId, volume, priority);
+        streams[slot] = stream;
+        voiceCategory[slot] = category;
+        voiceStart[slot] = now;
+        voiceEnd[slot] = now + lengthNanos[category];
+        triggered[category] = true;
+        lastTrigger[category] = now;
+        return stream;
+    }
+
+    /**
+     * Stops a stream returned by trigger() and frees its voice.
+     */
+    public synchronized void stop(int streamId) {
+        if (streamId == 0) {
+            return;
+        }
+        for (int v = 0; v < streams.length; v++) {
+            if (streams[v] == streamId) {
+                streams[v] = 0;
+            }
+        }
+        output.stop(streamId);
+    }
+
+    public synchronized long getCoalesced() {
+        return coalesced;
+    }
+
+    public synchronized long getStolen() {
+        return stolen;
+    }
+
+    public synchronized long getDropped() {
+        return dropped;
+    }
+
+    private boolean isWeaker(int a, int b) {
+        int priorityA = priorities[voiceCategory[a]];
+        int priorityB = priorities[voiceCategory[b]];
+        return priorityA < priorityB || (priorityA == priorityB && voiceStart[a] < voiceStart[b]);
+    }
+}
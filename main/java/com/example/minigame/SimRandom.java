@@ -0,0 +1,54 @@
+package com.example.minigame;
+
+/**
+ * Small seeded random number generator (SplitMix64) for the simulation.
+ *
+ * Unlike java.util.Random it has no atomic update per call, and its whole state is a single
+ * long, so a game can be reproduced from its seed or captured and restored mid-run.
+ * Not thread-safe; each Simulation owns one.
+ */
+public class SimRandom {
+
+    private long state;
+
+    public SimRandom(long seed) {
+        this.state = seed;
+    }
+
+    public long nextLong() {
+        long z = (state += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * @return A uniformly distributed int in [0, bound). bound must be positive.
+     */
+    public int nextInt(int bound) {
+        // Multiply-shift maps the top 31 bits onto [0, bound) without a division.
+        return (int) (((nextLong() >>> 33) * bound) >>> 31);
+    }
+
+    /**
+     * @return A uniformly distributed float in [0, 1).
+     */
+    public float nextFloat() {
+        return (nextLong() >>> 40) * 0x1.0p-24f;
+    }
+
+    /**
+     * @return A uniformly distributed double in [0, 1).
+     */
+    public double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    public long getState() {
+        return state;
+    }
+
+    public void setState(long state) {
+        this.state = state;
+    }
+}
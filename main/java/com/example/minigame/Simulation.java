@@ -0,0 +1,448 @@
+package com.example.minigame;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The game rules with no Android dependencies: waves, movement, collisions, scoring and lives.
+ *
+ * The simulation only advances when tick() is called and only sees input passed to tap(), and
+ * all randomness comes from a seeded {@link SimRandom}. The same seed, screen size and sequence
+ * of ticks and taps therefore always produce the same game, whether it runs behind GamePanel or
+ * headless on a JVM.
+ */
+public class Simulation {
+
+    // Fixed simulation rate; see setTickRate(). Speeds are per second, so the rate changes
+    // how finely motion is integrated, not how fast the game plays.
+    public static final int DEFAULT_TICKS_PER_SECOND = 60;
+    public static final int MIN_TICKS_PER_SECOND = 30;
+    public static final int MAX_TICKS_PER_SECOND = 120;
+
+    public static final int OBJECT_SIZE = 150;
+    // Collision broad phase. Cells cover an object's diameter plus the distance two objects can
+    // close within one substep, so every pair that touches in it is in adjacent cells.
+    public static final float GRID_CELL_SIZE = OBJECT_SIZE * (1 + Collisions.SUBSTEP_TRAVEL);
+    public static final int STARTING_LIVES = 3;
+
+    // Size of saveState()'s output before the objects.
+    static final int STATE_BYTES = 73;
+
+    /**
+     * Notified from tap() when an object is hit, e.g. to play a sound.
+     */
+    public interface Listener {
+        void onFruitTapped();
+
+        void onFlowerTapped();
+
+        void onPestTapped();
+    }
+
+    private long seed;
+    private final SimRandom rnd;
+    private final WaveConfig config;
+    private final EntityStore squares = new EntityStore(32);
+    // Reused by tap() for a single point.
+    private final TouchBatch singleTap = new TouchBatch(1);
+
+    // Number of image variants per kind. Sprite ids are laid out as fruits, then pests, then
+    // flowers, matching SpriteAtlas.
+    private final int fruitVariants;
+    private final int pestVariants;
+    private final int flowerVariants;
+
+    private Listener listener;
+    // Optional per-phase timing; null when not measuring.
+    private FrameStats stats;
+    private int width;
+    private int height;
+
+    private int score = 0;
+    private int lives = STARTING_LIVES;
+    private int taps = 0;
+    // Wave parameters, starting from the config's and growing every wave.
+    private int squaresPerWave;
+    private int waveSpeed;
+    private int waveCount = 0;
+    private double pestProbability;
+
+    private int tickRate;
+    private long stepNanos;
+    private float stepSeconds;
+    private int maxSubsteps = Collisions.MAX_SUBSTEPS;
+    // Runs the physics of each tick; the same results whichever is set.
+    private ParallelPhysics physics = ParallelPhysics.SERIAL;
+    private long tickCount = 0;
+    // Simulated time, the sum of every tick's step.
+    private long elapsedNanos = 0;
+    private boolean over = false;
+
+    public Simulation(long seed, int width, int height,
+                      int fruitVariants, int pestVariants, int flowerVariants) {
+        this(seed, width, height, fruitVariants, pestVariants, flowerVariants, WaveConfig.DEFAULT);
+    }
+
+    /**
+     * @param config Difficulty curve, e.g. a candidate being tuned.
+     */
+    public Simulation(long seed, int width, int height,
+                      int fruitVariants, int pestVariants, int flowerVariants, WaveConfig config) {
+        this.seed = seed;
+        this.rnd = new SimRandom(seed);
+        this.config = config;
+        squaresPerWave = config.firstWaveSize;
+        waveSpeed = config.firstWaveSpeed;
+        pestProbability = config.firstPestProbability;
+        this.width = width;
+        this.height = height;
+        this.fruitVariants = fruitVariants;
+        this.pestVariants = pestVariants;
+        this.flowerVariants = flowerVariants;
+        setTickRate(DEFAULT_TICKS_PER_SECOND);
+        squares.setIndex(new SpatialHash(GRID_CELL_SIZE, 32));
+    }
+
+    /**
+     * Starts a new game with the given seed, as if freshly constructed. Keeps the listener,
+     * stats, bounds, tick rate and substep limit, and the storage already allocated for objects.
+     */
+    public void reset(long seed) {
+        this.seed = seed;
+        rnd.setState(seed);
+        squares.clear();
+        score = 0;
+        lives = STARTING_LIVES;
+        taps = 0;
+        squaresPerWave = config.firstWaveSize;
+        waveSpeed = config.firstWaveSpeed;
+        waveCount = 0;
+        pestProbability = config.firstPestProbability;
+        tickCount = 0;
+        elapsedNanos = 0;
+        over = false;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public void setStats(FrameStats stats) {
+        this.stats = stats;
+    }
+
+    /**
+     * Sets how many fixed steps make up one second of play, e.g. to match the display's
+     * refresh rate or to save battery. May be changed between ticks, even mid-game.
+     *
+     * @param ticksPerSecond Clamped to MIN_TICKS_PER_SECOND..MAX_TICKS_PER_SECOND.
+     */
+    public void setTickRate(int ticksPerSecond) {
+        int rate = Math.max(MIN_TICKS_PER_SECOND, Math.min(ticksPerSecond, MAX_TICKS_PER_SECOND));
+        tickRate = rate;
+        stepNanos = 1_000_000_000L / rate;
+        stepSeconds = stepNanos / 1e9f;
+    }
+
+    public int getTickRate() {
+        return tickRate;
+    }
+
+    /**
+     * @return Length of one tick().
+     */
+    public long getStepNanos() {
+        return stepNanos;
+    }
+
+    /**
+     * Limits how many collision substeps one tick may take, trading accuracy for time on slow
+     * devices; see Collisions.substeps().
+     */
+    public void setMaxSubsteps(int maxSubsteps) {
+        this.maxSubsteps = Math.max(1, Math.min(maxSubsteps, Collisions.MAX_SUBSTEPS));
+    }
+
+    public int getMaxSubsteps() {
+        return maxSubsteps;
+    }
+
+    /**
+     * Lets the physics of each tick run in parallel once there are enough objects. Does not
+     * change how the game plays.
+     */
+    public void setPhysics(ParallelPhysics physics) {
+        this.physics = physics;
+    }
+
+    /**
+     * Updates the playfield size, e.g. when the surface changes.
+     */
+    public void setBounds(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Advances the game by one fixed step. When there are no non-penalty (point-giving) objects
+     * on screen, a new wave is spawned. Does nothing once the game is over.
+     */
+    public void tick() {
+        if (over) {
+            return;
+        }
+        if (getElapsedMillis() >= config.gameDurationMillis || lives <= 0) {
+            over = true;
+            return;
+        }
+        long start = stats != null ? System.nanoTime() : 0;
+
+        // If no point-giving objects remain, spawn a new wave.
+        if (!squares.hasPointEntities()) {
+            spawnWave(squaresPerWave, waveSpeed);
+            waveSpeed += config.waveSpeedStep;
+            waveCount++;
+
+            // Every few waves, the waves grow (by default by 2 every 3 waves, capped at 8).
+            if (waveCount % config.wavesPerSizeStep == 0) {
+                squaresPerWave = Math.min(squaresPerWave + config.waveSizeStep,
+                        config.maxWaveSize);
+            }
+
+            // Every wave, pests get more likely (by default by 0.002, capped at 0.5).
+            pestProbability = Math.min(pestProbability + config.pestProbabilityStep,
+                    config.maxPestProbability);
+        }
+
+        // Fast objects are moved and collided in several substeps so they cannot pass through
+        // each other; at normal speeds this is a single one.
+        long collideNanos = 0;
+        int substeps = physics.substeps(squares, stepSeconds, maxSubsteps);
+        float dt = stepSeconds / substeps;
+        for (int k = 0; k < substeps; k++) {
+            if (k == 0) {
+                physics.update(squares, dt);
+            } else {
+                physics.move(squares, dt);
+            }
+            long collideStart = stats != null ? System.nanoTime() : 0;
+            physics.sweep(squares, dt, width, height);
+            if (stats != null) {
+                collideNanos += System.nanoTime() - collideStart;
+            }
+        }
+        removeFallen();
+        tickCount++;
+        elapsedNanos += stepNanos;
+
+        if (stats != null) {
+            stats.add(FrameStats.UPDATE, System.nanoTime() - start - collideNanos);
+            stats.add(FrameStats.COLLIDE, collideNanos);
+        }
+    }
+
+    /**
+     * Removes every object under the given point and scores it.
+     */
+    public void tap(float x, float y) {
+        singleTap.accept(-1, x, y, true);
+        applyTouches(singleTap);
+    }
+
+    /**
+     * Removes and scores every object touched by the batch's taps and swipes, each at most
+     * once, then clears the batch.
+     */
+    public void applyTouches(TouchBatch batch) {
+        if (!over) {
+            taps += batch.strokes();
+            squares.getIndex().setBounds(width, height);
+            int hits = batch.resolve(squares, OBJECT_SIZE / 2f);
+            for (int k = 0; k < hits; k++) {
+                onTapped(batch.hit(k));
+            }
+        }
+        batch.clear();
+    }
+
+    private void onTapped(int i) {
+        if (squares.isPenalty(i)) {
+            lives--;
+            if (listener != null) {
+                listener.onPestTapped();
+            }
+        } else {
+            score += squares.points[i];
+            if (listener != null) {
+                if (squares.points[i] == 5) {
+                    listener.onFlowerTapped();
+                } else {
+                    listener.onFruitTapped();
+                }
+            }
+        }
+        squares.remove(i);
+    }
+
+    /**
+     * Spawns a wave of objects moving at speed pixels per second.
+     * - With probability based on pestProbability, a penalty (pest) is spawned.
+     * - Otherwise, a non-penalty is spawned:
+     *    • flowerProbability (10% by default) for a flower (worth +5)
+     *    • Otherwise a fruit (worth +1)
+     * Package-private so the spawn benchmark can drive it directly.
+     */
+    void spawnWave(int numSquares, int speed) {
+        for (int i = 0; i < numSquares; i++) {
+            int x = rnd.nextInt(Math.max(1, width - 100));
+            int size = OBJECT_SIZE;
+            boolean isPenalty = (rnd.nextDouble() < pestProbability);
+            if (isPenalty) {
+                int sprite = fruitVariants + rnd.nextInt(pestVariants);
+                // Pests fall faster, 1.5 times by default.
+                rndSqr.spawn(squares, rnd, x, 0, size, sprite, 0,
+                        (int) (speed * config.pestSpeedFactor),
+                        EntityStore.FLAG_PENALTY, -5);
+            } else {
+                if (rnd.nextDouble() < config.flowerProbability) {  // 10% by default
+                    int sprite = fruitVariants + pestVariants + rnd.nextInt(flowerVariants);
+                    rndSqr.spawn(squares, rnd, x, 0, size, sprite, speed, EntityStore.FLAG_FLOWER, 5);
+                } else {  // Otherwise, spawn a fruit.
+                    int sprite = rnd.nextInt(fruitVariants);
+                    rndSqr.spawn(squares, rnd, x, 0, size, sprite, speed, 0, 1);
+                }
+            }
+        }
+    }
+
+    private void removeFallen() {
+        for (int i = squares.count - 1; i >= 0; i--) {
+            // Gone once the top of the bounding box is below the screen.
+            if (squares.y[i] - squares.radius[i] > height) {
+                if (!squares.isPenalty(i)) {
+                    lives--;
+                }
+                squares.remove(i);
+            }
+        }
+    }
+
+    /**
+     * Writes everything that changes during a game, objects included, for GameSnapshot.
+     */
+    void saveState(ByteBuffer out) {
+        out.putLong(seed);
+        out.putLong(rnd.getState());
+        out.putInt(score);
+        out.putInt(lives);
+        out.putInt(taps);
+        out.putInt(squaresPerWave);
+        out.putInt(waveSpeed);
+        out.putInt(waveCount);
+        out.putDouble(pestProbability);
+        out.putInt(tickRate);
+        out.putInt(maxSubsteps);
+        out.putLong(tickCount);
+        out.putLong(elapsedNanos);
+        out.put((byte) (over ? 1 : 0));
+        squares.saveState(out);
+    }
+
+    /**
+     * Reads what saveState() wrote, replacing the current game.
+     */
+    void restoreState(ByteBuffer in) {
+        seed = in.getLong();
+        rnd.setState(in.getLong());
+        score = in.getInt();
+        lives = in.getInt();
+        taps = in.getInt();
+        squaresPerWave = in.getInt();
+        waveSpeed = in.getInt();
+        waveCount = in.getInt();
+        pestProbability = in.getDouble();
+        setTickRate(in.getInt());
+        setMaxSubsteps(in.getInt());
+        tickCount = in.getLong();
+        elapsedNanos = in.getLong();
+        over = in.get() != 0;
+        squares.restoreState(in);
+    }
+
+    public int getFruitVariants() {
+        return fruitVariants;
+    }
+
+    public int getPestVariants() {
+        return pestVariants;
+    }
+
+    public int getFlowerVariants() {
+        return flowerVariants;
+    }
+
+    public WaveConfig getConfig() {
+        return config;
+    }
+
+    public EntityStore getSquares() {
+        return squares;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getLives() {
+        return lives;
+    }
+
+    /**
+     * @return At most STARTING_LIVES: lives can drop below 0 when several are lost in the same
+     * tick, e.g. to a swipe across two pests.
+     */
+    public int getLivesLost() {
+        return Math.min(STARTING_LIVES, STARTING_LIVES - lives);
+    }
+
+    /**
+     * @return Number of taps and swipes so far.
+     */
+    public int getTaps() {
+        return taps;
+    }
+
+    public int getWaveCount() {
+        return waveCount;
+    }
+
+    public long getTickCount() {
+        return tickCount;
+    }
+
+    /**
+     * @return Simulated time since the game started.
+     */
+    public long getElapsedMillis() {
+        return elapsedNanos / 1_000_000L;
+    }
+
+    public long getRemainingMillis() {
+        return Math.max(0, config.gameDurationMillis - getElapsedMillis());
+    }
+
+    public boolean isOver() {
+        return over;
+    }
+}
@@ -2,15 +2,27 @@ package com.example.minigame;
 
 import android.content.Context;
 import android.media.AudioAttributes;
-import android.media.MediaPlayer;
 import android.media.SoundPool;
 import android.util.Log;
 
 public class SoundManager {
 
+    // Both screens play the same track for now, so going between them never even crossfades.
+    public static final int MENU_MUSIC = R.raw.bgmusic;
+    public static final int GAME_MUSIC = R.raw.bgmusic;
+
+    private static final float MUSIC_VOLUME = 0.5f;
+
+    // Matches the mixer's voice count, so SoundPool never steals streams on its own.
+    private static final int MAX_VOICES = 8;
+
     private static SoundManager instance;
 
     private SoundPool soundPool;
+    // Every effect goes through the mixer, which limits, coalesces and prioritizes them.
+    private final SfxMixer mixer;
+    // Variant selection; only needs to look random.
+    private final SimRandom variants = new SimRandom(System.nanoTime());
     private int[] fruitSoundIDs;
     private int[] flowerSoundIDs;
     private int[] pestSoundIDs;
@@ -31,7 +43,8 @@ public class SoundManager {
             R.raw.pest_tap1, R.raw.pest_tap2
     };
 
-    private MediaPlayer bgmPlayer;
+    // The only music in the app; menu and game share it.
+    private final MusicChannel music;
 
     private SoundManager(Context context) {
         AudioAttributes audioAttributes = new AudioAttributes.Builder()
@@ -40,11 +53,31 @@ public class SoundManager {
                 .build();
 
         soundPool = new SoundPool.Builder()
-                .setMaxStreams(10)
+                .setMaxStreams(MAX_VOICES)
                 .setAudioAttributes(audioAttributes)
                 .build();
 
+        mixer = new SfxMixer(new SfxMixer.Output() {
+            @Override
+            public int play(int sampleId, float volume, int priority) {
+                return soundPool.play(sampleId, volume, volume, priority, 0, 1f);
+            }
+
+            @Override
+            public void stop(int streamId) {
+                soundPool.stop(streamId);
+            }
+        }, MAX_VOICES);
+        // Voice lengths roughly match the bundled clips.
+        mixer.setCategory(SfxMixer.FRUIT, 3, 1, 1000, 25);
+        mixer.setCategory(SfxMixer.FLOWER, 2, 2, 600, 25);
+        mixer.setCategory(SfxMixer.PEST, 2, 3, 1000, 25);
+        mixer.setCategory(SfxMixer.UI, 2, 4, 500, 0);
+        mixer.setCategory(SfxMixer.JINGLE, 1, 5, 7000, 0);
+
         soundPool.setOnLoadCompleteListener((soundPool, sampleId, status) -> {
+            // Until this arrives the mixer skips the sample instead of playing silence.
+            mixer.onLoaded(sampleId, status == 0);
             if (status == 0) {
                 Log.d("SoundManager", "Sound loaded successfully: " + sampleId);
             } else {
@@ -72,12 +105,10 @@ public class SoundManager {
         loseLifeSoundId = soundPool.load(context, R.raw.lose_life, 1);
         popSoundId = soundPool.load(context, R.raw.click_sound, 1); // Load Pop Sound
 
-        bgmPlayer = MediaPlayer.create(context, R.raw.background_music);
-        bgmPlayer.setLooping(true);
-        bgmPlayer.setVolume(0.5f, 0.5f);
+        music = new MusicChannel(context, MUSIC_VOLUME);
     }
 
-    public static SoundManager getInstance(Context context) {
+    public static synchronized SoundManager getInstance(Context context) {
         if (instance == null) {
             instance = new SoundManager(context.getApplicationContext());
         }
@@ -85,56 +116,57 @@ public class SoundManager {
     }
 
     public void playFruitTap() {
-        int index = (int) (Math.random() * fruitSoundIDs.length);
-        soundPool.play(fruitSoundIDs[index], 0.7f, 0.7f, 1, 0, 1f);
+        play(SfxMixer.FRUIT, fruitSoundIDs[variants.nextInt(fruitSoundIDs.length)], 0.7f);
     }
 
     public void playFlowerTap() {
-        int index = (int) (Math.random() * flowerSoundIDs.length);
-        soundPool.play(flowerSoundIDs[index], 0.7f, 0.7f, 1, 0, 1f);
+        play(SfxMixer.FLOWER, flowerSoundIDs[variants.nextInt(flowerSoundIDs.length)], 0.7f);
     }
 
     public void playPestTap() {
-        int index = (int) (Math.random() * pestSoundIDs.length);
-        soundPool.play(pestSoundIDs[index], pestVolume, pestVolume, 1, 0, 1f);
+        play(SfxMixer.PEST, pestSoundIDs[variants.nextInt(pestSoundIDs.length)], pestVolume);
     }
 
     public void playLoseLifeSfx() {
-        soundPool.play(loseLifeSoundId, 1f, 1f, 1, 0, 1f);
+        play(SfxMixer.UI, loseLifeSoundId, 1f);
     }
 
     public void playGameOverSfx() {
-        gameOverStreamId = soundPool.play(gameOverSoundId, 1f, 1f, 1, 0, 1f);
+        gameOverStreamId = play(SfxMixer.JINGLE, gameOverSoundId, 1f);
     }
 
     public void pauseGameOverSfx() {
         if (gameOverStreamId != 0) {
-            soundPool.stop(gameOverStreamId);
+            mixer.stop(gameOverStreamId);
             gameOverStreamId = 0;
         }
     }
 
     public void playPopSound() {
-        soundPool.play(popSoundId, 1f, 1f, 1, 0, 1f);
+        play(SfxMixer.UI, popSoundId, 1f);
     }
 
-    public void startBgm() {
-        if (bgmPlayer != null && !bgmPlayer.isPlaying()) {
-            bgmPlayer.start();
+    private int play(int category, int sampleId, float volume) {
+        if (soundPool == null) {
+            return 0;
         }
+        return mixer.trigger(category, sampleId, volume, System.nanoTime());
+    }
+
+    /**
+     * Plays MENU_MUSIC, GAME_MUSIC or another raw resource in a loop, crossfading from
+     * whatever is playing, or resumes it if it is the same track.
+     */
+    public void startBgm(int track) {
+        music.play(track);
     }
 
     public void pauseBgm() {
-        if (bgmPlayer != null && bgmPlayer.isPlaying()) {
-            bgmPlayer.pause();
-        }
+        music.pause();
     }
 
     public void release() {
-        if (bgmPlayer != null) {
-            bgmPlayer.release();
-            bgmPlayer = null;
-        }
+        music.release();
         if (soundPool != null) {
             soundPool.release();
             soundPool = null;
@@ -0,0 +1,196 @@
+package com.example.minigame;
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid over the screen used as the collision broad phase. Each cell keeps an intrusive
+ * doubly linked list of the entity indices whose center lies in it, so an update only relinks
+ * the entities that actually changed cell since the last tick.
+ *
+ * Coordinates outside the screen are clamped to the border cells, which keeps objects that are
+ * spawning or falling off correct at the cost of a few extra candidates.
+ */
+public class SpatialHash {
+
+    private static final int NONE = -1;
+
+    private final float cellSize;
+    private int columns = 0;
+    private int rows = 0;
+    private int width = -1;
+    private int height = -1;
+
+    private int[] heads = new int[0];   // First entity in each cell, or NONE.
+
+    // Per entity index, parallel to the EntityStore arrays.
+    private int[] cellOf;
+    private int[] next;
+    private int[] prev;
+
+    // Scratch for Collisions: the bands of this grid's last pass.
+    private final CollisionBands bands = new CollisionBands();
+
+    /**
+     * @param cellSize Edge length of a cell. Use the largest object diameter, so every
+     *                 overlapping pair lies in the same or adjacent cells.
+     */
+    public SpatialHash(float cellSize, int initialCapacity) {
+        this.cellSize = cellSize;
+        int capacity = Math.max(1, initialCapacity);
+        cellOf = new int[capacity];
+        next = new int[capacity];
+        prev = new int[capacity];
+        Arrays.fill(cellOf, NONE);
+    }
+
+    /**
+     * Resizes the grid to cover the given screen. Everything is rebinned on the next update().
+     */
+    public void setBounds(int screenWidth, int screenHeight) {
+        if (screenWidth == width && screenHeight == height) {
+            return;
+        }
+        width = screenWidth;
+        height = screenHeight;
+        columns = Math.max(1, (int) Math.ceil(screenWidth / cellSize));
+        rows = Math.max(1, (int) Math.ceil(screenHeight / cellSize));
+        if (heads.length < columns * rows) {
+            heads = new int[columns * rows];
+        }
+        clear();
+    }
+
+    /**
+     * Moves every entity whose center changed cell into its new cell list.
+     */
+    public void update(EntityStore store) {
+        float[] x = store.x, y = store.y;
+        for (int i = 0, n = store.count; i < n; i++) {
+            int cell = cellFor(x[i], y[i]);
+            if (cell != cellOf[i]) {
+                unlink(i);
+                link(i, cell);
+            }
+        }
+    }
+
+    public int column(float x) {
+        int c = (int) (x / cellSize);
+        return c < 0 ? 0 : (c >= columns ? columns - 1 : c);
+    }
+
+    public int row(float y) {
+        int r = (int) (y / cellSize);
+        return r < 0 ? 0 : (r >= rows ? rows - 1 : r);
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * @return The first entity index in the given cell, or -1 if it is empty.
+     */
+    public int first(int column, int row) {
+        return heads[row * columns + column];
+    }
+
+    /**
+     * @return The entity after i in the same cell, or -1 at the end of the list.
+     */
+    public int next(int i) {
+        return next[i];
+    }
+
+    CollisionBands getBands() {
+        return bands;
+    }
+
+    // --- Bookkeeping driven by EntityStore ---
+
+    /**
+     * A new entity was appended at index i; it is binned on the next update().
+     */
+    void onAdd(int i) {
+        if (i >= cellOf.length) {
+            int capacity = Math.max(i + 1, cellOf.length * 2);
+            int oldLength = cellOf.length;
+            cellOf = Arrays.copyOf(cellOf, capacity);
+            next = Arrays.copyOf(next, capacity);
+            prev = Arrays.copyOf(prev, capacity);
+            Arrays.fill(cellOf, oldLength, capacity, NONE);
+        }
+        cellOf[i] = NONE;
+    }
+
+    /**
+     * Entity i is being removed and the entity at last is moving into its slot.
+     */
+    void onRemove(int i, int last) {
+        unlink(i);
+        if (i == last) {
+            return;
+        }
+        int cell = cellOf[last];
+        cellOf[i] = cell;
+        cellOf[last] = NONE;
+        if (cell == NONE) {
+            return;
+        }
+        // Relabel the list node of last as i.
+        int p = prev[last];
+        int nx = next[last];
+        prev[i] = p;
+        next[i] = nx;
+        if (p != NONE) {
+            next[p] = i;
+        } else {
+            heads[cell] = i;
+        }
+        if (nx != NONE) {
+            prev[nx] = i;
+        }
+    }
+
+    void clear() {
+        Arrays.fill(heads, NONE);
+        Arrays.fill(cellOf, NONE);
+    }
+
+    private int cellFor(float x, float y) {
+        return row(y) * columns + column(x);
+    }
+
+    private void link(int i, int cell) {
+        int head = heads[cell];
+        prev[i] = NONE;
+        next[i] = head;
+        if (head != NONE) {
+            prev[head] = i;
+        }
+        heads[cell] = i;
+        cellOf[i] = cell;
+    }
+
+    private void unlink(int i) {
+        int cell = cellOf[i];
+        if (cell == NONE) {
+            return;
+        }
+        int p = prev[i];
+        int nx = next[i];
+        if (p != NONE) {
+            next[p] = nx;
+        } else {
+            heads[cell] = nx;
+        }
+        if (nx != NONE) {
+            prev[nx] = p;
+        }
+        cellOf[i] = NONE;
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.minigame;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+/**
+ * Packs every fruit, pest and flower image into one bitmap, decoded and scaled to the on-screen
+ * object size exactly once. Game objects only store the int id of their {@link Sprite} region.
+ */
+public class SpriteAtlas {
+
+    // Transparent gap between cells so filtered, rotated draws never sample a neighbour.
+    private static final int PADDING = 2;
+
+    private final Bitmap atlas;
+    // Indexed by sprite id: fruits first, then pests, then flowers.
+    private final Sprite[] sprites;
+    private final int spriteSize;
+    private final int columns;
+    private int nextCell = 0;
+
+    /**
+     * A square region of the atlas bitmap holding one image.
+     */
+    public static class Sprite {
+        public final Bitmap bitmap;
+        public final Rect src;
+
+        Sprite(Bitmap bitmap, Rect src) {
+            this.bitmap = bitmap;
+            this.src = src;
+        }
+    }
+
+    /**
+     * Decodes and packs the given drawables. Does file I/O and decoding, so call it before the
+     * game loop starts rather than from it.
+     *
+     * @param size Edge length, in pixels, every image is scaled to.
+     */
+    public SpriteAtlas(Resources res, int[] fruitIds, int[] pestIds, int[] flowerIds, int size) {
+        this.spriteSize = size;
+        int count = fruitIds.length + pestIds.length + flowerIds.length;
+        columns = (int) Math.ceil(Math.sqrt(count));
+        int rows = (count + columns - 1) / columns;
+        int cell = size + PADDING;
+        atlas = Bitmap.createBitmap(columns * cell, rows * cell, Bitmap.Config.ARGB_8888);
+        sprites = new Sprite[count];
+
+        Canvas canvas = new Canvas(atlas);
+        Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        pack(res, fruitIds, canvas, paint, options);
+        pack(res, pestIds, canvas, paint, options);
+        pack(res, flowerIds, canvas, paint, options);
+        atlas.prepareToDraw();
+    }
+
+    private void pack(Resources res, int[] ids, Canvas canvas, Paint paint,
+                      BitmapFactory.Options options) {
+        int cell = spriteSize + PADDING;
+        for (int i = 0; i < ids.length; i++) {
+            int left = (nextCell % columns) * cell;
+            int top = (nextCell / columns) * cell;
+            Rect dst = new Rect(left, top, left + spriteSize, top + spriteSize);
+
+            Bitmap decoded = decode(res, ids[i], options);
+            if (decoded != null) {
+                canvas.drawBitmap(decoded, null, dst, paint);
+                decoded.recycle();
+            }
+            sprites[nextCell] = new Sprite(atlas, dst);
+            nextCell++;
+        }
+    }
+
+    /**
+     * Decodes a drawable at its raw pixel size (skipping the resource-density scaling pass),
+     * subsampled as far as possible while staying at least spriteSize pixels across.
+     */
+    private Bitmap decode(Resources res, int id, BitmapFactory.Options options) {
+        options.inJustDecodeBounds = true;
+        options.inScaled = false;
+        options.inSampleSize = 1;
+        BitmapFactory.decodeResource(res, id, options);
+
+        int sampleSize = 1;
+        int smallest = Math.min(options.outWidth, options.outHeight);
+        while (smallest / (sampleSize * 2) >= spriteSize) {
+            sampleSize *= 2;
+        }
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        return BitmapFactory.decodeResource(res, id, options);
+    }
+
+    /**
+     * @param id Index into the fruit images, then the pest images, then the flower images, in the
+     *           order they were passed to the constructor (the layout Simulation assigns).
+     */
+    public Sprite sprite(int id) {
+        return sprites[id];
+    }
+
+    public int getSpriteSize() {
+        return spriteSize;
+    }
+
+    /**
+     * @return The bitmap every sprite is a region of, e.g. to upload as one texture.
+     */
+    public Bitmap getBitmap() {
+        return atlas;
+    }
+
+    /**
+     * Frees the atlas bitmap. No sprite from this atlas may be drawn afterwards.
+     */
+    public void recycle() {
+        atlas.recycle();
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.minigame;
+
+import android.opengl.GLES20;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+
+/**
+ * Collects textured quads, in screen pixels, and draws them all with one glDrawElements call.
+ * Rotation is applied to the corners on the CPU, so quads of any angle share a draw call as
+ * long as they share a texture. Game thread only, with a GL context current.
+ */
+class SpriteBatch {
+
+    // x, y, u, v per vertex; four vertices and two triangles per quad.
+    private static final int FLOATS_PER_VERTEX = 4;
+    private static final int FLOATS_PER_QUAD = 4 * FLOATS_PER_VERTEX;
+    private static final int INDICES_PER_QUAD = 6;
+    private static final int STRIDE = FLOATS_PER_VERTEX * 4;
+    // Vertex indices are shorts; quads beyond this are dropped.
+    private static final int MAX_QUADS = 65536 / 4;
+
+    private float[] vertices;
+    private FloatBuffer vertexBuffer;
+    private ShortBuffer indexBuffer;
+    private int capacity = 0;
+    private int count = 0;
+
+    SpriteBatch(int initialQuads) {
+        grow(Math.max(1, Math.min(initialQuads, MAX_QUADS)));
+    }
+
+    void begin() {
+        count = 0;
+    }
+
+    /**
+     * Adds a square centered on (x, y), rotated clockwise by angle degrees like
+     * Canvas.rotate(), textured with the given region.
+     */
+    void add(float x, float y, float halfSize, float angle, float u0, float v0, float u1,
+             float v1) {
+        if (count == capacity) {
+            if (capacity == MAX_QUADS) {
+                return;
+            }
+            grow(Math.min(capacity * 2, MAX_QUADS));
+        }
+        double radians = Math.toRadians(angle);
+        float cos = (float) Math.cos(radians) * halfSize;
+        float sin = (float) Math.sin(radians) * halfSize;
+        // Corners (-1, -1), (1, -1), (1, 1), (-1, 1), rotated and scaled.
+        int p = count * FLOATS_PER_QUAD;
+        p = put(p, x - cos + sin, y - sin - cos, u0, v0);
+        p = put(p, x + cos + sin, y + sin - cos, u1, v0);
+        p = put(p, x + cos - sin, y + sin + cos, u1, v1);
+        put(p, x - cos - sin, y - sin + cos, u0, v1);
+        count++;
+    }
+
+    /**
+     * Adds an axis-aligned rectangle.
+     */
+    void addRect(float left, float top, float right, float bottom, float u0, float v0,
+                 float u1, float v1) {
+        if (count == capacity) {
+            if (capacity == MAX_QUADS) {
+                return;
+            }
+            grow(Math.min(capacity * 2, MAX_QUADS));
+        }
+        int p = count * FLOATS_PER_QUAD;
+        p = put(p, left, top, u0, v0);
+        p = put(p, right, top, u1, v0);
+        p = put(p, right, bottom, u1, v1);
+        put(p, left, bottom, u0, v1);
+        count++;
+    }
+
+    /**
+     * Draws every quad added since begin() with the currently bound program and texture.
+     */
+    void draw(int positionAttribute, int texCoordAttribute) {
+        if (count == 0) {
+            return;
+        }
+        vertexBuffer.clear();
+        vertexBuffer.put(vertices, 0, count * FLOATS_PER_QUAD);
+        vertexBuffer.position(0);
+        GLES20.glVertexAttribPointer(positionAttribute, 2, GLES20.GL_FLOAT, false, STRIDE,
+                vertexBuffer);
+        vertexBuffer.position(2);
+        GLES20.glVertexAttribPointer(texCoordAttribute, 2, GLES20.GL_FLOAT, false, STRIDE,
+                vertexBuffer);
+        indexBuffer.position(0);
+        GLES20.glDrawElements(GLES20.GL_TRIANGLES, count * INDICES_PER_QUAD,
+                GLES20.GL_UNSIGNED_SHORT, indexBuffer);
+    }
+
+    int size() {
+        return count;
+    }
+
+    private int put(int p, float x, float y, float u, float v) {
+        vertices[p] = x;
+        vertices[p + 1] = y;
+        vertices[p + 2] = u;
+        vertices[p + 3] = v;
+        return p + FLOATS_PER_VERTEX;
+    }
+
+    /**
+     * Resizes the buffers to hold quads, keeping the vertices added so far. The index buffer
+     * never changes between draws, so it is only written here.
+     */
+    private void grow(int quads) {
+        vertices = vertices == null ? new float[quads * FLOATS_PER_QUAD]
+                : Arrays.copyOf(vertices, quads * FLOATS_PER_QUAD);
+        vertexBuffer = ByteBuffer.allocateDirect(quads * FLOATS_PER_QUAD * 4)
+                .order(ByteOrder.nativeOrder()).asFloatBuffer();
+        indexBuffer = ByteBuffer.allocateDirect(quads * INDICES_PER_QUAD * 2)
+                .order(ByteOrder.nativeOrder()).asShortBuffer();
+        for (int q = 0; q < quads; q++) {
+            short first = (short) (q * 4);
+            indexBuffer.put(first).put((short) (first + 1)).put((short) (first + 2))
+                    .put(first).put((short) (first + 2)).put((short) (first + 3));
+        }
+        capacity = quads;
+    }
+}
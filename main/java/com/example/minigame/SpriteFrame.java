@@ -0,0 +1,43 @@
+package com.example.minigame;
+
+/**
+ * Where every object is drawn in the current display frame: its center and angle, interpolated
+ * between the previous and the current simulation step. Shared by the renderers; reused from
+ * frame to frame without allocating.
+ */
+class SpriteFrame {
+
+    float[] x = new float[32];
+    float[] y = new float[32];
+    float[] angle = new float[32];
+
+    /**
+     * Interpolates every object of the store.
+     *
+     * @param alpha How far (0..1) the display frame lies between the previous and the current
+     *              simulation step.
+     * @return Number of objects, i.e. valid entries in x, y and angle.
+     */
+    int interpolate(EntityStore squares, float alpha) {
+        int n = squares.count;
+        if (x.length < n) {
+            int capacity = Math.max(n, x.length * 2);
+            x = new float[capacity];
+            y = new float[capacity];
+            angle = new float[capacity];
+        }
+        for (int i = 0; i < n; i++) {
+            x[i] = squares.prevX[i] + (squares.x[i] - squares.prevX[i]) * alpha;
+            y[i] = squares.prevY[i] + (squares.y[i] - squares.prevY[i]) * alpha;
+            // The angle wraps at +/-360, so interpolate along the short way round.
+            float turn = squares.angle[i] - squares.prevAngle[i];
+            if (turn > 180) {
+                turn -= 360;
+            } else if (turn < -180) {
+                turn += 360;
+            }
+            angle[i] = squares.prevAngle[i] + turn * alpha;
+        }
+        return n;
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.minigame;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+/**
+ * Debug overlay that draws {@link FrameStats} over the game: p50/p95/p99 per phase in
+ * microseconds, the entity count and the dropped-frame count.
+ *
+ * Percentiles are recomputed every REFRESH_FRAMES frames into fixed char buffers, so drawing
+ * it allocates nothing. Call update() once per frame, or per HUD refresh, and draw() whenever
+ * the overlay is drawn.
+ */
+public class StatsOverlay {
+
+    private static final int REFRESH_FRAMES = 15;
+    private static final String[] LABELS = {"upd ", "col ", "drw ", "pst ", "frm "};
+    private static final int LINE_HEIGHT = 34;
+    private static final int WIDTH = 420;
+
+    private final Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint backgroundPaint = new Paint();
+    private final char[][] lines = new char[FrameStats.SERIES + 1][40];
+    private final int[] lengths = new int[FrameStats.SERIES + 1];
+    private int framesUntilRefresh = 0;
+
+    public StatsOverlay() {
+        textPaint.setColor(Color.WHITE);
+        textPaint.setTextSize(28);
+        backgroundPaint.setColor(Color.argb(160, 0, 0, 0));
+    }
+
+    /**
+     * Counts a frame and recomputes the text when it is due.
+     *
+     * @return true if the text changed, i.e. the overlay needs drawing again.
+     */
+    public boolean update(FrameStats stats) {
+        if (--framesUntilRefresh > 0) {
+            return false;
+        }
+        framesUntilRefresh = REFRESH_FRAMES;
+        refresh(stats);
+        return true;
+    }
+
+    public void draw(Canvas c, float left, float top) {
+        c.drawRect(left, top, left + WIDTH, top + lines.length * LINE_HEIGHT + 12, backgroundPaint);
+        for (int i = 0; i < lines.length; i++) {
+            c.drawText(lines[i], 0, lengths[i], left + 10, top + (i + 1) * LINE_HEIGHT, textPaint);
+        }
+    }
+
+    /**
+     * @return The area draw() covers when called with the same position, in out.
+     */
+    public Rect getBounds(float left, float top, Rect out) {
+        out.set((int) left, (int) top, (int) Math.ceil(left + WIDTH),
+                (int) Math.ceil(top + lines.length * LINE_HEIGHT + 12));
+        return out;
+    }
+
+    private void refresh(FrameStats stats) {
+        for (int s = 0; s < FrameStats.SERIES; s++) {
+            char[] line = lines[s];
+            int n = append(line, 0, LABELS[s]);
+            n = append(line, n, stats.percentile(s, 50) / 1000);
+            line[n++] = '/';
+            n = append(line, n, stats.percentile(s, 95) / 1000);
+            line[n++] = '/';
+            n = append(line, n, stats.percentile(s, 99) / 1000);
+            n = append(line, n, " us");
+            lengths[s] = n;
+        }
+        char[] line = lines[FrameStats.SERIES];
+        int n = append(line, 0, "n ");
+        n = append(line, n, stats.getEntityCount());
+        n = append(line, n, "  drop ");
+        n = append(line, n, stats.getDroppedFrames());
+        lengths[FrameStats.SERIES] = n;
+    }
+
+    private static int append(char[] line, int pos, String text) {
+        text.getChars(0, text.length(), line, pos);
+        return pos + text.length();
+    }
+
+    private static int append(char[] line, int pos, long value) {
+        if (value < 0) {
+            line[pos++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        int end = pos + digits;
+        for (int i = end - 1; i >= pos; i--) {
+            line[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return end;
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.minigame;
+
+import java.util.Arrays;
+
+/**
+ * The touch input of one simulation step, as segments a finger swept between consecutive
+ * samples. Every pointer of a multi-touch gesture is tracked separately, so two fingers never
+ * join into one stroke, and the first sample of a stroke is a zero-length segment (a tap).
+ *
+ * resolve() hit-tests all segments against the entities in one pass, using the store's
+ * {@link SpatialHash} when it has one, and reports each entity at most once. Game thread only;
+ * reused from step to step without allocating.
+ */
+public class TouchBatch implements TouchQueue.Consumer {
+
+    // Pointers with a higher id are hit-tested as single points instead of strokes.
+    private static final int MAX_POINTERS = 10;
+
+    // Last sample of every pointer, to join the next one to.
+    private final float[] lastX = new float[MAX_POINTERS];
+    private final float[] lastY = new float[MAX_POINTERS];
+    private final boolean[] tracking = new boolean[MAX_POINTERS];
+
+    private float[] x0;
+    private float[] y0;
+    private float[] x1;
+    private float[] y1;
+    private int count = 0;
+    // Strokes started in this batch, i.e. taps and the start of each swipe.
+    private int strokes = 0;
+
+    // Entities found by the last resolve(), and a per-entity stamp so each is reported once.
+    private int[] hits = new int[16];
+    private int hitCount = 0;
+    private int[] marks = new int[16];
+    private int stamp = 0;
+
+    /**
+     * @param initialCapacity Segments held before the arrays have to grow.
+     */
+    public TouchBatch(int initialCapacity) {
+        int capacity = Math.max(1, initialCapacity);
+        x0 = new float[capacity];
+        y0 = new float[capacity];
+        x1 = new float[capacity];
+        y1 = new float[capacity];
+    }
+
+    /**
+     * Adds one touch sample.
+     *
+     * @param down true if the pointer just went down; the sample then starts a new stroke
+     *             rather than continuing the pointer's previous one.
+     */
+    @Override
+    public void accept(int pointerId, float x, float y, boolean down) {
+        if (pointerId < 0 || pointerId >= MAX_POINTERS) {
+            strokes++;
+            addSegment(x, y, x, y);
+            return;
+        }
+        if (down || !tracking[pointerId]) {
+            strokes++;
+            addSegment(x, y, x, y);
+        } else {
+            addSegment(lastX[pointerId], lastY[pointerId], x, y);
+        }
+        lastX[pointerId] = x;
+        lastY[pointerId] = y;
+        tracking[pointerId] = true;
+    }
+
+    /**
+     * Adds a segment directly, e.g. to replay a recorded swipe.
+     */
+    public void addSegment(float fromX, float fromY, float toX, float toY) {
+        if (count == x0.length) {
+            int capacity = count * 2;
+            x0 = Arrays.copyOf(x0, capacity);
+            y0 = Arrays.copyOf(y0, capacity);
+            x1 = Arrays.copyOf(x1, capacity);
+            y1 = Arrays.copyOf(y1, capacity);
+        }
+        x0[count] = fromX;
+        y0[count] = fromY;
+        x1[count] = toX;
+        y1[count] = toY;
+        count++;
+    }
+
+    /**
+     * Counts strokes started in this batch, e.g. to replay a recorded batch whose segments
+     * were added with addSegment().
+     */
+    public void addStrokes(int count) {
+        strokes += count;
+    }
+
+    /**
+     * Finds every entity touched by any segment in the batch. Brings the store's index up to
+     * date first; without an index, or before it has been given the screen bounds, every
+     * entity is tested.
+     *
+     * @param maxRadius Largest entity radius in the store, which bounds the cells searched.
+     * @return Number of entities hit; read them with hit().
+     */
+    public int resolve(EntityStore store, float maxRadius) {
+        hitCount = 0;
+        if (count == 0) {
+            return 0;
+        }
+        if (marks.length < store.count) {
+            marks = new int[Math.max(store.count, marks.length * 2)];
+            stamp = 0;
+        }
+        if (++stamp == 0) {
+            Arrays.fill(marks, 0);
+            stamp = 1;
+        }
+
+        SpatialHash grid = store.getIndex();
+        if (grid == null || grid.getColumns() == 0) {
+            for (int s = 0; s < count; s++) {
+                for (int i = 0, n = store.count; i < n; i++) {
+                    test(store, i, s);
+                }
+            }
+        } else {
+            grid.update(store);
+            // An entity is binned by its center, so search every cell whose center could be
+            // within reach of the segment.
+            float reach = maxRadius + rndSqr.HIT_SLOP;
+            for (int s = 0; s < count; s++) {
+                int maxColumn = grid.column(Math.max(x0[s], x1[s]) + reach);
+                int minRow = grid.row(Math.min(y0[s], y1[s]) - reach);
+                int maxRow = grid.row(Math.max(y0[s], y1[s]) + reach);
+                for (int r = minRow; r <= maxRow; r++) {
+                    for (int c = grid.column(Math.min(x0[s], x1[s]) - reach); c <= maxColumn; c++) {
+                        for (int i = grid.first(c, r); i != -1; i = grid.next(i)) {
+                            test(store, i, s);
+                        }
+                    }
+                }
+            }
+        }
+
+        Arrays.sort(hits, 0, hitCount);
+        return hitCount;
+    }
+
+    /**
+     * @param k 0 to resolve()'s result - 1.
+     * @return Entity index of the k-th hit. Hits come in descending index order, so they can
+     * be removed from the store one after another with its swap-remove.
+     */
+    public int hit(int k) {
+        return hits[hitCount - 1 - k];
+    }
+
+    /**
+     * Drops the segments, keeping each pointer's stroke so the next step continues it.
+     */
+    public void clear() {
+        count = 0;
+        strokes = 0;
+    }
+
+    /**
+     * Drops the segments and ends every stroke, e.g. when the surface is recreated.
+     */
+    public void reset() {
+        count = 0;
+        strokes = 0;
+        Arrays.fill(tracking, false);
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @return Number of strokes started by the samples in this batch.
+     */
+    public int strokes() {
+        return strokes;
+    }
+
+    // Segment k of size(), e.g. to record the batch.
+
+    public float fromX(int k) {
+        return x0[k];
+    }
+
+    public float fromY(int k) {
+        return y0[k];
+    }
+
+    public float toX(int k) {
+        return x1[k];
+    }
+
+    public float toY(int k) {
+        return y1[k];
+    }
+
+    private void test(EntityStore store, int i, int s) {
+        if (marks[i] != stamp && rndSqr.touches(store, i, x0[s], y0[s], x1[s], y1[s])) {
+            marks[i] = stamp;
+            if (hitCount == hits.length) {
+                hits = Arrays.copyOf(hits, hitCount * 2);
+            }
+            hits[hitCount++] = i;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.minigame;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Single-producer / single-consumer ring buffer that carries touch samples from the UI thread
+ * (onTouchEvent) to the game thread without locks or per-event allocation. Each sample carries
+ * the pointer it belongs to and whether it starts a new stroke.
+ */
+public class TouchQueue {
+
+    private final float[] xs;
+    private final float[] ys;
+    private final int[] pointers;
+    private final boolean[] downs;
+    private final int mask;
+
+    // Next slot the producer writes / the consumer reads. Only ever advanced by their owner.
+    private final AtomicInteger head = new AtomicInteger();
+    private final AtomicInteger tail = new AtomicInteger();
+
+    /**
+     * @param capacity Maximum number of buffered samples, rounded up to a power of two.
+     */
+    public TouchQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        xs = new float[size];
+        ys = new float[size];
+        pointers = new int[size];
+        downs = new boolean[size];
+        mask = size - 1;
+    }
+
+    /**
+     * Called from the UI thread. Drops the sample if the game thread has fallen too far behind.
+     *
+     * @param pointerId MotionEvent pointer id.
+     * @param down      true for the first sample of a stroke (the pointer just went down).
+     * @return true if the sample was queued.
+     */
+    public boolean offer(int pointerId, float x, float y, boolean down) {
+        int t = tail.get();
+        if (t - head.get() > mask) {
+            return false;
+        }
+        xs[t & mask] = x;
+        ys[t & mask] = y;
+        pointers[t & mask] = pointerId;
+        downs[t & mask] = down;
+        // Publish the slot only after it has been written.
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    /**
+     * Called from the game thread. Hands every queued sample to the consumer in arrival order.
+     */
+    public void drain(Consumer consumer) {
+        int h = head.get();
+        int t = tail.get();
+        while (h != t) {
+            int slot = h & mask;
+            consumer.accept(pointers[slot], xs[slot], ys[slot], downs[slot]);
+            h++;
+        }
+        head.lazySet(h);
+    }
+
+    /**
+     * Discards anything still queued. Game thread only.
+     */
+    public void clear() {
+        head.lazySet(tail.get());
+    }
+
+    public interface Consumer {
+        void accept(int pointerId, float x, float y, boolean down);
+    }
+}
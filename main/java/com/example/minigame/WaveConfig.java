@@ -0,0 +1,143 @@
+package com.example.minigame;
+
+/**
+ * The difficulty curve: how waves grow in size, speed and pest share as the game goes on, and
+ * how long a game lasts. DEFAULT is the curve the game ships with; other configs are for
+ * tuning it headless, see DifficultyTuner in tools.
+ */
+public final class WaveConfig {
+
+    /**
+     * The original curve. Speeds are the original 20 and 2 pixels per 50 ms Handler tick (the
+     * "+2.5" it added to an int truncated to 2).
+     */
+    public static final WaveConfig DEFAULT = new Builder().build();
+
+    public final int firstWaveSize;
+    // Objects added to a wave every wavesPerSizeStep waves, up to maxWaveSize.
+    public final int waveSizeStep;
+    public final int wavesPerSizeStep;
+    public final int maxWaveSize;
+
+    // Pixels per second: the first wave's, and the increase per wave.
+    public final int firstWaveSpeed;
+    public final int waveSpeedStep;
+    // Pests fall this much faster than the wave.
+    public final float pestSpeedFactor;
+
+    public final double firstPestProbability;
+    public final double pestProbabilityStep;
+    public final double maxPestProbability;
+    // Share of point-giving objects that are flowers.
+    public final double flowerProbability;
+
+    public final long gameDurationMillis;
+
+    private WaveConfig(Builder b) {
+        firstWaveSize = b.firstWaveSize;
+        waveSizeStep = b.waveSizeStep;
+        wavesPerSizeStep = b.wavesPerSizeStep;
+        maxWaveSize = b.maxWaveSize;
+        firstWaveSpeed = b.firstWaveSpeed;
+        waveSpeedStep = b.waveSpeedStep;
+        pestSpeedFactor = b.pestSpeedFactor;
+        firstPestProbability = b.firstPestProbability;
+        pestProbabilityStep = b.pestProbabilityStep;
+        maxPestProbability = b.maxPestProbability;
+        flowerProbability = b.flowerProbability;
+        gameDurationMillis = b.gameDurationMillis;
+    }
+
+    /**
+     * @return A builder starting from this config, to change a few parameters of it.
+     */
+    public Builder toBuilder() {
+        Builder b = new Builder();
+        b.firstWaveSize = firstWaveSize;
+        b.waveSizeStep = waveSizeStep;
+        b.wavesPerSizeStep = wavesPerSizeStep;
+        b.maxWaveSize = maxWaveSize;
+        b.firstWaveSpeed = firstWaveSpeed;
+        b.waveSpeedStep = waveSpeedStep;
+        b.pestSpeedFactor = pestSpeedFactor;
+        b.firstPestProbability = firstPestProbability;
+        b.pestProbabilityStep = pestProbabilityStep;
+        b.maxPestProbability = maxPestProbability;
+        b.flowerProbability = flowerProbability;
+        b.gameDurationMillis = gameDurationMillis;
+        return b;
+    }
+
+    @Override
+    public String toString() {
+        return "size=" + firstWaveSize + "+" + waveSizeStep + "/" + wavesPerSizeStep + "<="
+                + maxWaveSize + " speed=" + firstWaveSpeed + "+" + waveSpeedStep
+                + " pest=" + firstPestProbability + "+" + pestProbabilityStep + "<="
+                + maxPestProbability + " duration=" + gameDurationMillis / 1000 + "s";
+    }
+
+    /**
+     * Starts from the default curve.
+     */
+    public static final class Builder {
+        private int firstWaveSize = 3;
+        private int waveSizeStep = 2;
+        private int wavesPerSizeStep = 3;
+        private int maxWaveSize = 8;
+        private int firstWaveSpeed = 400;
+        private int waveSpeedStep = 40;
+        private float pestSpeedFactor = 1.5f;
+        private double firstPestProbability = 0.15;
+        private double pestProbabilityStep = 0.002;
+        private double maxPestProbability = 0.5;
+        private double flowerProbability = 0.1;
+        private long gameDurationMillis = 2 * 60 * 1000;
+
+        public Builder waveSize(int first, int step, int wavesPerStep, int max) {
+            firstWaveSize = first;
+            waveSizeStep = step;
+            wavesPerSizeStep = wavesPerStep;
+            maxWaveSize = max;
+            return this;
+        }
+
+        public Builder waveSpeed(int first, int step) {
+            firstWaveSpeed = first;
+            waveSpeedStep = step;
+            return this;
+        }
+
+        public Builder pestSpeedFactor(float factor) {
+            pestSpeedFactor = factor;
+            return this;
+        }
+
+        public Builder pestProbability(double first, double step, double max) {
+            firstPestProbability = first;
+            pestProbabilityStep = step;
+            maxPestProbability = max;
+            return this;
+        }
+
+        public Builder flowerProbability(double probability) {
+            flowerProbability = probability;
+            return this;
+        }
+
+        public Builder gameDurationMillis(long millis) {
+            gameDurationMillis = millis;
+            return this;
+        }
+
+        /**
+         * @throws IllegalArgumentException if a wave could be empty or the game never end.
+         */
+        public WaveConfig build() {
+            if (firstWaveSize < 1 || waveSizeStep < 0 || maxWaveSize < firstWaveSize
+                    || wavesPerSizeStep < 1 || gameDurationMillis <= 0) {
+                throw new IllegalArgumentException("Invalid wave config");
+            }
+            return new WaveConfig(this);
+        }
+    }
+}
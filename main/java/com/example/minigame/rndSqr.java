@@ -1,95 +1,120 @@
 package com.example.minigame;
 
-import android.graphics.Bitmap;
-import android.graphics.Canvas;
-import android.graphics.PointF;
-
-import java.util.Random;
-
+/**
+ * Behaviour of the falling objects (fruits, flowers and pests). Their state lives in an
+ * {@link EntityStore}; these methods spawn, move and hit-test entries of it. Drawing is up to
+ * the renderer, so this class has no Android dependencies.
+ */
 public class rndSqr {
-    private static final Random rnd = new Random();
-    public PointF pos; // Top-left corner of the circle's bounding box.
-    public int size;   // Diameter of the circle.
-    private Bitmap image;
-    public float dx;
-    public float dy;
-    private int points;
-    private boolean penalty;
 
-    // New fields for rotation.
-    private float angle = 0;         // Current rotation angle (in degrees).
-    private float rotationSpeed;     // Rotation speed in degrees per update.
+    // Extra pixels around an object that still count as touching it.
+    public static final float HIT_SLOP = 10;
+    // Degrees per second either way.
+    public static final float MAX_ROTATION_SPEED = 100;
 
-    public rndSqr(PointF pos, int size, Bitmap image, int speed) {
-        this(pos, size, image,
-                (float) (speed * Math.cos(Math.PI / 4 + rnd.nextFloat() * Math.PI / 2)),
-                (float) (speed * Math.sin(Math.PI / 4 + rnd.nextFloat() * Math.PI / 2)),
-                false);
+    private rndSqr() {
     }
 
-    public rndSqr(PointF pos, int size, Bitmap image, float dx, float dy, boolean penalty) {
-        this.pos = pos;
-        this.size = size;
-        // Scale the image to fit the bounding box of the circle.
-        this.image = Bitmap.createScaledBitmap(image, size, size, false);
-        this.dx = dx;
-        this.dy = dy;
-        this.penalty = penalty;
-        this.points = penalty ? -5 : (size < 100 ? 10 : 5);
-        // Initialize rotation speed to a random value between -5 and +5 degrees per update.
-        this.rotationSpeed = (rnd.nextFloat() - 0.5f) * 10;
+    /**
+     * Spawns a point-giving object moving downwards at a random angle.
+     *
+     * @param x     Left edge of the object's bounding box.
+     * @param y     Top edge of the object's bounding box.
+     * @param size  Diameter of the circle.
+     * @param speed Pixels per second.
+     * @return Index of the new entity.
+     */
+    public static int spawn(EntityStore store, SimRandom rnd, float x, float y, int size,
+                            int sprite, int speed, int flags, int points) {
+        return spawn(store, rnd, x, y, size, sprite,
+                (float) (speed * Math.cos(Math.PI / 4 + rnd.nextFloat() * Math.PI / 2)),
+                (float) (speed * Math.sin(Math.PI / 4 + rnd.nextFloat() * Math.PI / 2)),
+                flags, points);
     }
 
-    public void update(int screenWidth, int screenHeight) {
-        pos.x += dx;
-        pos.y += dy;
-        // Update the rotation angle.
-        angle = (angle + rotationSpeed) % 360;
+    public static int spawn(EntityStore store, SimRandom rnd, float x, float y, int size,
+                            int sprite, float dx, float dy, int flags, int points) {
+        float radius = size / 2f;
+        int i = store.add(x + radius, y + radius, radius, dx, dy, flags, points, sprite);
+        // Initialize rotation speed to a random value between -100 and +100 degrees per second.
+        store.rotationSpeed[i] = (rnd.nextFloat() - 0.5f) * 2 * MAX_ROTATION_SPEED;
+        return i;
     }
 
-    public void draw(Canvas c) {
-        // Compute the center of the circle.
-        float centerX = pos.x + size / 2f;
-        float centerY = pos.y + size / 2f;
-
-        // Save the current canvas state.
-        c.save();
-        // Rotate the canvas around the circle's center.
-        c.rotate(angle, centerX, centerY);
-        // Draw the image. Because the canvas is rotated,
-        // the image will appear rotated.
-        c.drawBitmap(image, pos.x, pos.y, null);
-        // Restore the canvas to its original state.
-        c.restore();
-
+    /**
+     * Advances every object by one simulation step.
+     *
+     * @param dt Length of the step in seconds; dx, dy and rotationSpeed are per second.
+     */
+    public static void update(EntityStore store, float dt) {
+        update(store, dt, 0, store.count);
     }
 
-    public boolean contains(PointF point) {
-        float radius = size / 2f;
-        float centerX = pos.x + radius;
-        float centerY = pos.y + radius;
-        // Add a buffer of x pixels
-        float buffer = 10;
-        float diffX = point.x - centerX;
-        float diffY = point.y - centerY;
-        return (diffX * diffX + diffY * diffY) <= ((radius + buffer) * (radius + buffer));
+    /**
+     * update() for objects from..to-1 only, e.g. to split the work between threads.
+     */
+    public static void update(EntityStore store, float dt, int from, int to) {
+        float[] x = store.x, y = store.y, dx = store.dx, dy = store.dy;
+        float[] angle = store.angle, rotationSpeed = store.rotationSpeed;
+        float[] prevX = store.prevX, prevY = store.prevY, prevAngle = store.prevAngle;
+        for (int i = from; i < to; i++) {
+            prevX[i] = x[i];
+            prevY[i] = y[i];
+            prevAngle[i] = angle[i];
+            x[i] += dx[i] * dt;
+            y[i] += dy[i] * dt;
+            // Update the rotation angle.
+            angle[i] = (angle[i] + rotationSpeed[i] * dt) % 360;
+        }
     }
 
-    public void setPoints(int points) {
-        this.points = points;
+    /**
+     * Like update(), but leaves prevX, prevY and prevAngle alone, for the second and later
+     * substeps of a step that update() started.
+     */
+    public static void move(EntityStore store, float dt) {
+        move(store, dt, 0, store.count);
     }
 
-    public int getPoints() {
-        return points;
+    /**
+     * move() for objects from..to-1 only.
+     */
+    public static void move(EntityStore store, float dt, int from, int to) {
+        float[] x = store.x, y = store.y, dx = store.dx, dy = store.dy;
+        float[] angle = store.angle, rotationSpeed = store.rotationSpeed;
+        for (int i = from; i < to; i++) {
+            x[i] += dx[i] * dt;
+            y[i] += dy[i] * dt;
+            angle[i] = (angle[i] + rotationSpeed[i] * dt) % 360;
+        }
     }
 
-    public boolean isPenalty() {
-        return penalty;
+    public static boolean contains(EntityStore store, int i, float px, float py) {
+        float reach = store.radius[i] + HIT_SLOP;
+        float diffX = px - store.x[i];
+        float diffY = py - store.y[i];
+        return (diffX * diffX + diffY * diffY) <= reach * reach;
     }
 
-    // Used to determine if an object is a fruit (non-penalty).
-    public boolean isPointSquare() {
-        return !penalty;
+    /**
+     * Like contains(), but for the path a finger swept between two touch samples: true if any
+     * point of the segment from (x0, y0) to (x1, y1) is within reach of the object.
+     */
+    public static boolean touches(EntityStore store, int i, float x0, float y0, float x1, float y1) {
+        float segX = x1 - x0;
+        float segY = y1 - y0;
+        float toCenterX = store.x[i] - x0;
+        float toCenterY = store.y[i] - y0;
+        // Closest point of the segment to the center, as a fraction t of the segment.
+        float lengthSquared = segX * segX + segY * segY;
+        float t = 0;
+        if (lengthSquared > 0) {
+            t = (toCenterX * segX + toCenterY * segY) / lengthSquared;
+            t = t < 0 ? 0 : (t > 1 ? 1 : t);
+        }
+        float diffX = toCenterX - segX * t;
+        float diffY = toCenterY - segY * t;
+        float reach = store.radius[i] + HIT_SLOP;
+        return (diffX * diffX + diffY * diffY) <= reach * reach;
     }
-
 }
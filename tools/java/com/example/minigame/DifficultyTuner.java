@@ -0,0 +1,178 @@
+package com.example.minigame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Plays many headless games per difficulty curve and player model, spread over every core,
+ * and prints the score and survival distributions as CSV, one line per combination.
+ *
+ * The curves are the default one and a grid around it: wave speed increase, pest probability
+ * increase and largest wave size. Game i uses the same seed under every curve and player, so
+ * the differences between lines come from the parameters rather than from luck.
+ *
+ * Needs only a JDK, as the simulation has no Android dependencies. From the repository root:
+ *
+ * <pre>
+ * tools/run-tuner.sh [games per combination] [threads] &gt; tuning.csv
+ * </pre>
+ *
+ * Games per combination default to 10000 and threads to every core. The CSV goes to stdout,
+ * the total time to stderr.
+ */
+public class DifficultyTuner {
+
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 1920;
+    // Games per task; each task reuses one simulation for all of them.
+    private static final int CHUNK = 500;
+
+    private static final PlayerModel[] PLAYERS = {
+            PlayerModel.NOVICE, PlayerModel.AVERAGE, PlayerModel.EXPERT
+    };
+
+    public static void main(String[] args) throws Exception {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1])
+                : Runtime.getRuntime().availableProcessors();
+
+        List<WaveConfig> configs = candidates();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        System.out.println("config,player,games,mean_score,p10_score,p50_score,p90_score,"
+                + "survival_rate,p50_seconds,mean_waves");
+        try {
+            for (WaveConfig config : configs) {
+                for (PlayerModel player : PLAYERS) {
+                    Results results = new Results(games);
+                    List<Future<?>> tasks = new ArrayList<>();
+                    for (int from = 0; from < games; from += CHUNK) {
+                        int first = from;
+                        int last = Math.min(from + CHUNK, games);
+                        tasks.add(pool.submit(() -> play(config, player, first, last, results)));
+                    }
+                    for (Future<?> task : tasks) {
+                        task.get();
+                    }
+                    System.out.println(results.summary(config, player));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        long seconds = (System.nanoTime() - start) / 1_000_000_000L;
+        System.err.println(configs.size() * PLAYERS.length * (long) games + " games in "
+                + seconds + " s on " + threads + " threads");
+    }
+
+    /**
+     * @return The default curve, then every combination of the swept parameters around it.
+     */
+    static List<WaveConfig> candidates() {
+        List<WaveConfig> configs = new ArrayList<>();
+        WaveConfig base = WaveConfig.DEFAULT;
+        configs.add(base);
+        for (int speedStep : new int[]{20, 40, 60}) {
+            for (double pestStep : new double[]{0.001, 0.002, 0.004}) {
+                for (int maxSize : new int[]{6, 8, 10}) {
+                    if (speedStep == base.waveSpeedStep && pestStep == base.pestProbabilityStep
+                            && maxSize == base.maxWaveSize) {
+                        continue;
+                    }
+                    WaveConfig config = base.toBuilder()
+                            .waveSpeed(base.firstWaveSpeed, speedStep)
+                            .pestProbability(base.firstPestProbability, pestStep,
+                                    base.maxPestProbability)
+                            .waveSize(base.firstWaveSize, base.waveSizeStep,
+                                    base.wavesPerSizeStep, maxSize)
+                            .build();
+                    configs.add(config);
+                }
+            }
+        }
+        return configs;
+    }
+
+    /**
+     * Plays games first..last-1 and stores their outcomes at the same indices.
+     */
+    static void play(WaveConfig config, PlayerModel player, int first, int last,
+                     Results results) {
+        Simulation sim = new Simulation(0, WIDTH, HEIGHT, 8, 3, 3, config);
+        TouchBatch batch = new TouchBatch(1);
+        SimRandom hand = new SimRandom(0);
+        int interval = player.tapInterval(sim);
+        for (int game = first; game < last; game++) {
+            long seed = seed(game);
+            sim.reset(seed);
+            // The player's own randomness is seeded per game too, but apart from the game's.
+            hand.setState(~seed);
+            long nextTap = 0;
+            while (!sim.isOver()) {
+                if (sim.getTickCount() >= nextTap && player.act(sim, hand, batch)) {
+                    nextTap = sim.getTickCount() + interval;
+                }
+                sim.applyTouches(batch);
+                sim.tick();
+            }
+            results.score[game] = sim.getScore();
+            results.millis[game] = sim.getElapsedMillis();
+            results.waves[game] = sim.getWaveCount();
+            results.survived[game] = sim.getLives() > 0;
+        }
+    }
+
+    private static long seed(int game) {
+        return new SimRandom(0x5EEDL + game).nextLong();
+    }
+
+    /**
+     * Outcome of every game of one combination, indexed by game; each task writes its own
+     * range.
+     */
+    static final class Results {
+        final int[] score;
+        final long[] millis;
+        final int[] waves;
+        final boolean[] survived;
+
+        Results(int games) {
+            score = new int[games];
+            millis = new long[games];
+            waves = new int[games];
+            survived = new boolean[games];
+        }
+
+        String summary(WaveConfig config, PlayerModel player) {
+            int games = score.length;
+            int[] sortedScore = score.clone();
+            Arrays.sort(sortedScore);
+            long[] sortedMillis = millis.clone();
+            Arrays.sort(sortedMillis);
+            long scoreSum = 0;
+            long waveSum = 0;
+            int survivors = 0;
+            for (int i = 0; i < games; i++) {
+                scoreSum += score[i];
+                waveSum += waves[i];
+                if (survived[i]) {
+                    survivors++;
+                }
+            }
+            return String.format(Locale.ROOT, "\"%s\",%s,%d,%.2f,%d,%d,%d,%.4f,%.1f,%.2f",
+                    config, player.name, games, (double) scoreSum / games,
+                    percentile(sortedScore, 10), percentile(sortedScore, 50),
+                    percentile(sortedScore, 90), (double) survivors / games,
+                    sortedMillis[games / 2] / 1000.0, (double) waveSum / games);
+        }
+
+        private static int percentile(int[] sorted, int p) {
+            return sorted[Math.min(sorted.length - 1, sorted.length * p / 100)];
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.minigame;
+
+/**
+ * A scripted player for headless games: taps at a limited rate, only reacts to objects that
+ * have been on screen for a while, aims with some error, and now and then taps a pest by
+ * mistake. Always goes for the point-giving object closest to falling off first.
+ */
+final class PlayerModel {
+
+    static final PlayerModel NOVICE = new PlayerModel("novice", 2f, 450, 60, 0.10);
+    static final PlayerModel AVERAGE = new PlayerModel("average", 4f, 300, 35, 0.04);
+    static final PlayerModel EXPERT = new PlayerModel("expert", 7f, 180, 15, 0.01);
+
+    final String name;
+    final float tapsPerSecond;
+    // How long an object has to be on screen before it is noticed.
+    final int reactionMillis;
+    // Largest distance of a tap from where it was aimed, per axis.
+    final float aimError;
+    // Chance that a tap goes for a pest instead.
+    final double pestMistakeRate;
+
+    PlayerModel(String name, float tapsPerSecond, int reactionMillis, float aimError,
+                double pestMistakeRate) {
+        this.name = name;
+        this.tapsPerSecond = tapsPerSecond;
+        this.reactionMillis = reactionMillis;
+        this.aimError = aimError;
+        this.pestMistakeRate = pestMistakeRate;
+    }
+
+    /**
+     * @return Ticks between two taps at the simulation's tick rate.
+     */
+    int tapInterval(Simulation sim) {
+        return Math.max(1, Math.round(sim.getTickRate() / tapsPerSecond));
+    }
+
+    /**
+     * Picks a target among the objects this player has noticed and adds a tap at it to batch.
+     *
+     * @return false if nothing was noticed yet; nothing is added then.
+     */
+    boolean act(Simulation sim, SimRandom rnd, TouchBatch batch) {
+        EntityStore s = sim.getSquares();
+        float reaction = reactionMillis / 1000f;
+        boolean mistake = rnd.nextDouble() < pestMistakeRate;
+        int target = -1;
+        int pests = 0;
+        for (int i = 0; i < s.count; i++) {
+            // Noticed once it has travelled for the reaction time since entering at the top.
+            if (s.y[i] - s.radius[i] < Math.abs(s.dy[i]) * reaction
+                    || s.y[i] - s.radius[i] > sim.getHeight()) {
+                continue;
+            }
+            if (s.isPenalty(i)) {
+                // Reservoir sampling: any noticed pest is equally likely to be mistapped.
+                if (mistake && rnd.nextInt(++pests) == 0) {
+                    target = i;
+                }
+            } else if (!mistake && (target == -1 || s.y[i] > s.y[target])) {
+                target = i;
+            }
+        }
+        if (target == -1) {
+            return false;
+        }
+        float x = s.x[target] + (rnd.nextFloat() * 2 - 1) * aimError;
+        float y = s.y[target] + (rnd.nextFloat() * 2 - 1) * aimError;
+        batch.accept(-1, x, y, true);
+        return true;
+    }
+}
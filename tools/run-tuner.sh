@@ -0,0 +1,13 @@
+#!/bin/sh
+# Builds and runs DifficultyTuner with nothing but a JDK; the simulation it plays has no
+# Android dependencies, so it compiles straight from main/java.
+#
+#   tools/run-tuner.sh [games per combination] [threads] > tuning.csv
+set -e
+root=$(cd "$(dirname "$0")/.." && pwd)
+out="$root/build/tools"
+rm -rf "$out"
+mkdir -p "$out"
+javac -encoding UTF-8 -d "$out" -sourcepath "$root/main/java" \
+    "$root"/tools/java/com/example/minigame/*.java
+exec java -cp "$out" com.example.minigame.DifficultyTuner "$@"